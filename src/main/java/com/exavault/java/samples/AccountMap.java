@@ -0,0 +1,123 @@
+package com.exavault.java.samples;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One value per account (API key) and API URL, for state shared by everything using the same account in the JVM.
+ * <p>
+ * Looking up an existing value never locks, only creating a missing value does. The map holds at most
+ * {@code maxAccounts} values. When a new value would exceed that, the least recently used one is evicted, and
+ * {@link #evictIdle(long)} also removes values unused for a given time, so a service talking to hundreds of
+ * accounts does not keep the state of every account it ever saw. Code still holding an evicted value can keep
+ * using it, the next lookup of its account creates a new one.
+ *
+ * @param <V> type of the values
+ */
+public abstract class AccountMap<V> {
+	//default maximum number of accounts kept
+	public static final int DEFAULT_MAX_ACCOUNTS = 512;
+	private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final int maxAccounts;
+
+	//a value and the last time it was handed out
+	private static class Entry<V> {
+		private final V value;
+		private volatile long lastUsedNanos;
+
+		private Entry(V value) {
+			this.value = value;
+			this.lastUsedNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * @param maxAccounts maximum number of accounts kept
+	 */
+	public AccountMap(int maxAccounts) {
+		if (maxAccounts < 1) {
+			throw new IllegalArgumentException("maxAccounts must be positive");
+		}
+		this.maxAccounts = maxAccounts;
+	}
+
+	/**
+	 * Build the value of an account on its first use
+	 *
+	 * @param credential credentials of the account
+	 * @return the value
+	 */
+	protected abstract V create(Credential credential);
+
+	/**
+	 * Get the value of an account, creating it on first use
+	 *
+	 * @param credential credentials of the account
+	 * @return the value
+	 */
+	public V get(Credential credential) {
+		String key = key(credential);
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			entry = createEntry(key, credential);
+		}
+		entry.lastUsedNanos = System.nanoTime();
+		return entry.value;
+	}
+
+	/**
+	 * Remove the values which were not used for the given time
+	 *
+	 * @param idleMillis idle time after which a value is removed
+	 * @return number of values removed
+	 */
+	public int evictIdle(long idleMillis) {
+		long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+		int evicted = 0;
+		for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+			if (entry.getValue().lastUsedNanos - limit < 0 && entries.remove(entry.getKey(), entry.getValue())) {
+				evicted++;
+			}
+		}
+		return evicted;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	//slow path, creation is serialized so a value is never built twice for the same account
+	private synchronized Entry<V> createEntry(String key, Credential credential) {
+		Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			return entry;
+		}
+		entry = new Entry<>(create(credential));
+		if (entries.size() >= maxAccounts) {
+			evictLeastRecentlyUsed();
+		}
+		entries.put(key, entry);
+		return entry;
+	}
+
+	private void evictLeastRecentlyUsed() {
+		String oldestKey = null;
+		long oldest = 0;
+		for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+			long lastUsed = entry.getValue().lastUsedNanos;
+			if (oldestKey == null || lastUsed - oldest < 0) {
+				oldestKey = entry.getKey();
+				oldest = lastUsed;
+			}
+		}
+		if (oldestKey != null) {
+			entries.remove(oldestKey);
+		}
+	}
+
+	private static String key(Credential credential) {
+		return credential.getApiUrl() + "|" + credential.getEvApiKey();
+	}
+}
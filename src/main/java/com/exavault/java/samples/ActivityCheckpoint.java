@@ -0,0 +1,152 @@
+package com.exavault.java.samples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * High-water mark of an activity log stream: the creation time of the newest entry seen, and the ids of the entries
+ * seen within {@link #LOOKBACK_MILLIS} before it.
+ * <p>
+ * Polls of a log read again the last minutes before the mark, since the server cannot be asked for entries after a
+ * given id and some entries are indexed late, with a creation time the previous poll had already passed. An entry
+ * within that window is new when its id was not seen yet, so late entries are caught and none is reported twice.
+ * Entries older than the window are taken as seen. At most {@link #MAX_SEEN_IDS} ids are kept, the oldest ones are
+ * forgotten first.
+ * <p>
+ * The mark is kept in a small properties file per account and stream, replaced atomically on every save.
+ */
+public class ActivityCheckpoint {
+	//default folder for the checkpoints, relative to the working directory
+	public static final String DEFAULT_CHECKPOINT_DIR = ".activity-checkpoint";
+	//how far before the mark entries are read again and told apart by id, to catch entries indexed late
+	public static final long LOOKBACK_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	//largest number of ids remembered
+	public static final int MAX_SEEN_IDS = 100000;
+	private static final String CREATED = "created";
+	//ids seen at the mark, kept by checkpoints written before ids were remembered over a window
+	private static final String BOUNDARY_IDS = "boundaryIds";
+	private static final String SEEN = "seen";
+	private final Path file;
+	//id to creation time of the entries seen within the window, oldest first as entries are handed over
+	private final Map<Long, Long> seen = new LinkedHashMap<>();
+	private long createdMillis;
+
+	private ActivityCheckpoint(Path file, long createdMillis) {
+		this.file = file;
+		this.createdMillis = createdMillis;
+	}
+
+	/**
+	 * Load the checkpoint of a stream, or start a new one
+	 *
+	 * @param credential    Credentials, the checkpoint belongs to their account
+	 * @param stream        name of the log, such as "session" or "webhook"
+	 * @param initialMillis mark of a new checkpoint, in epoch milliseconds
+	 * @return the checkpoint
+	 * @throws IOException the checkpoint exists but could not be read
+	 */
+	public static ActivityCheckpoint load(Credential credential, String stream, long initialMillis) throws IOException {
+		Path file = Paths.get(DEFAULT_CHECKPOINT_DIR, Utils.sha1Hex(credential.getApiUrl() + "|" + stream) + ".properties");
+		ActivityCheckpoint checkpoint = new ActivityCheckpoint(file, initialMillis);
+		if (Files.isRegularFile(file)) {
+			Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream(file)) {
+				properties.load(in);
+			}
+			try {
+				checkpoint.createdMillis = Long.parseLong(properties.getProperty(CREATED));
+				for (String id : properties.getProperty(BOUNDARY_IDS, "").split(",")) {
+					if (!id.isEmpty()) {
+						checkpoint.seen.put(Long.valueOf(id), checkpoint.createdMillis);
+					}
+				}
+				//id:created pairs
+				for (String pair : properties.getProperty(SEEN, "").split(",")) {
+					int colon = pair.indexOf(':');
+					if (colon > 0) {
+						checkpoint.seen.put(Long.valueOf(pair.substring(0, colon)), Long.valueOf(pair.substring(colon + 1)));
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Damaged checkpoint " + file, e);
+			}
+		}
+		return checkpoint;
+	}
+
+	public long getCreatedMillis() {
+		return createdMillis;
+	}
+
+	//start of the window entries are read again from, in epoch milliseconds
+	public long getWindowStartMillis() {
+		return createdMillis - LOOKBACK_MILLIS;
+	}
+
+	/**
+	 * Whether an entry was not seen yet
+	 *
+	 * @param entryMillis creation time of the entry, in epoch milliseconds
+	 * @param id          id of the entry
+	 * @return true if the entry is within the window or after it, and its id was not seen
+	 */
+	public boolean isNew(long entryMillis, long id) {
+		return entryMillis >= getWindowStartMillis() && !seen.containsKey(id);
+	}
+
+	/**
+	 * Record an entry as seen, moving the mark when it is the newest one
+	 *
+	 * @param entryMillis creation time of the entry, in epoch milliseconds
+	 * @param id          id of the entry
+	 */
+	public void advance(long entryMillis, long id) {
+		createdMillis = Math.max(createdMillis, entryMillis);
+		seen.put(id, entryMillis);
+		if (seen.size() > MAX_SEEN_IDS) {
+			Iterator<Long> oldest = seen.keySet().iterator();
+			oldest.next();
+			oldest.remove();
+		}
+	}
+
+	/**
+	 * Store the checkpoint
+	 *
+	 * @throws IOException the checkpoint could not be written
+	 */
+	public void save() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(CREATED, Long.toString(createdMillis));
+		StringBuilder ids = new StringBuilder();
+		for (Iterator<Map.Entry<Long, Long>> it = seen.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Long, Long> entry = it.next();
+			//entries which fell out of the window are taken as seen anyway
+			if (entry.getValue() < getWindowStartMillis()) {
+				it.remove();
+				continue;
+			}
+			if (ids.length() > 0) {
+				ids.append(',');
+			}
+			ids.append(entry.getKey()).append(':').append(entry.getValue());
+		}
+		properties.setProperty(SEEN, ids.toString());
+		Files.createDirectories(file.getParent());
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temp)) {
+			properties.store(out, null);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,335 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ActivityApi;
+import com.exavault.client.model.SessionActivityEntry;
+import com.exavault.client.model.WebhooksActivityEntry;
+import com.exavault.client.model.WebhooksActivityResponse;
+import org.threeten.bp.Instant;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reports only the activity logged since the previous poll, for session logs and webhook logs.
+ * <p>
+ * Each log has an {@link ActivityCheckpoint}, and both are read again from a few minutes before its mark so entries
+ * indexed late are caught. Session logs are read through
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getSessionLogs">getSessionLogs</a>.
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getWebhookLogs">getWebhookLogs</a> cannot filter
+ * by time and lists the newest entries first, so the offset of the oldest entry of the window is looked up first,
+ * then the pages are read back towards the newest entry. Entries logged meanwhile push the others to higher offsets:
+ * every page reads a few entries more than needed to cover that, and the total of the page tells by how much they
+ * moved, so a page pushed further is read again from its new place. In both cases
+ * entries whose id was already seen are dropped, new entries are handed over oldest first and the checkpoint is
+ * saved. A poll with nothing new therefore costs one or two small requests.
+ */
+public class ActivityFollower {
+	//how far before the mark logs are read again, to catch entries indexed late
+	public static final long LOOKBACK_MILLIS = ActivityCheckpoint.LOOKBACK_MILLIS;
+	//number of webhook log entries per call
+	public static final int WEBHOOK_PAGE_SIZE = 100;
+	//default largest number of webhook log entries handed over at once
+	public static final int DEFAULT_WEBHOOK_BATCH_SIZE = 1000;
+	static final String SESSION_STREAM = "session";
+	static final String WEBHOOK_STREAM = "webhook";
+	private static final String WEBHOOK_SORT = "-created";
+	private final ActivityApi activityApi;
+	private final Credential credential;
+	private final SessionLogScanner sessionScanner;
+
+	/**
+	 * Receives the new entries of a poll, oldest first
+	 *
+	 * @param <T> type of the entries
+	 */
+	public interface EntryHandler<T> {
+		void onEntries(List<T> entries) throws IOException;
+	}
+
+	/**
+	 * @param activityApi Activity API to be used
+	 * @param credential  Credentials
+	 * @param sessionType operation type filter of the session logs, null for all operations
+	 */
+	public ActivityFollower(ActivityApi activityApi, Credential credential, String sessionType) {
+		this.activityApi = activityApi;
+		this.credential = credential;
+		this.sessionScanner = new SessionLogScanner(activityApi, credential, null, null, null, sessionType);
+	}
+
+	/**
+	 * Number of seconds between two polls, as given to the {@code --follow=SECONDS} argument of the samples
+	 *
+	 * @param value text of the argument
+	 * @return the number of seconds
+	 * @throws IllegalArgumentException the value is not a positive whole number
+	 */
+	public static int parseFollowSeconds(String value) {
+		int seconds;
+		try {
+			seconds = Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number of seconds: " + value, e);
+		}
+		if (seconds < 1) {
+			throw new IllegalArgumentException("The follow interval must be at least one second: " + value);
+		}
+		return seconds;
+	}
+
+	/**
+	 * Hand the session log entries logged since the checkpoint to {@code handler}, then save the checkpoint
+	 *
+	 * @param checkpoint mark of the session log
+	 * @param handler    receives the new entries
+	 * @return number of new entries
+	 * @throws ApiException the logs could not be read
+	 * @throws IOException  the handler failed or the checkpoint could not be saved
+	 */
+	public int pollSessions(final ActivityCheckpoint checkpoint, EntryHandler<SessionActivityEntry> handler)
+		throws ApiException, IOException {
+		OffsetDateTime start = OffsetDateTime.ofInstant(Instant.ofEpochMilli(checkpoint.getWindowStartMillis()), ZoneOffset.UTC);
+		final List<Stamped<SessionActivityEntry>> fresh = new ArrayList<>();
+		final Set<Long> ids = new HashSet<>();
+		sessionScanner.scan(start, OffsetDateTime.now(), new SessionLogScanner.PageHandler() {
+			@Override
+			public void onPage(List<SessionActivityEntry> entries) {
+				for (SessionActivityEntry entry : entries) {
+					Stamped<SessionActivityEntry> stamped = stamp(entry, entry.getId(),
+						entry.getAttributes() != null ? entry.getAttributes().getCreated() : null, checkpoint);
+					if (checkpoint.isNew(stamped.millis, stamped.id) && ids.add(stamped.id)) {
+						fresh.add(stamped);
+					}
+				}
+			}
+		});
+		return emit(fresh, checkpoint, handler);
+	}
+
+	/**
+	 * Hand the webhook log entries logged since the checkpoint to {@code handler}, in batches of up to
+	 * {@value #DEFAULT_WEBHOOK_BATCH_SIZE} entries
+	 *
+	 * @param checkpoint mark of the webhook log
+	 * @param handler    receives the new entries
+	 * @return number of new entries
+	 * @throws ApiException the logs could not be read
+	 * @throws IOException  the handler failed or the checkpoint could not be saved
+	 */
+	public int pollWebhooks(ActivityCheckpoint checkpoint, EntryHandler<WebhooksActivityEntry> handler)
+		throws ApiException, IOException {
+		return pollWebhooks(checkpoint, handler, DEFAULT_WEBHOOK_BATCH_SIZE);
+	}
+
+	/**
+	 * Hand the webhook log entries logged since the checkpoint to {@code handler} in batches, saving the checkpoint
+	 * after each batch, so memory does not grow with the number of new entries and a failed poll resumes after the
+	 * last batch handled
+	 *
+	 * @param checkpoint mark of the webhook log
+	 * @param handler    receives the new entries
+	 * @param batchSize  largest number of entries handed over at once
+	 * @return number of new entries
+	 * @throws ApiException the logs could not be read
+	 * @throws IOException  the handler failed or the checkpoint could not be saved
+	 */
+	public int pollWebhooks(ActivityCheckpoint checkpoint, EntryHandler<WebhooksActivityEntry> handler, int batchSize)
+		throws ApiException, IOException {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		WebhookBatch batch = new WebhookBatch(checkpoint, handler, batchSize);
+		WebhooksActivityResponse first = getWebhookLogs(0, WEBHOOK_PAGE_SIZE);
+		List<WebhooksActivityEntry> firstEntries = entriesOf(first);
+		int total = first.getTotalResults() != null ? first.getTotalResults() : firstEntries.size();
+		int inWindow = countInWindow(firstEntries, checkpoint);
+		if (inWindow < firstEntries.size() || firstEntries.size() >= total) {
+			//the whole window is on the first page, as for most polls
+			batch.addNewestFirst(firstEntries.subList(0, inWindow));
+			return batch.finish();
+		}
+		Cursor cursor = findWindowEnd(checkpoint, firstEntries.size(), total);
+		//read back from the oldest entry of the window, so batches are handed over oldest first
+		while (cursor.end > 0) {
+			int offset = Math.max(0, cursor.end - WEBHOOK_PAGE_SIZE);
+			//the extra entries cover the ones pushed down by entries logged since the previous page
+			WebhooksActivityResponse page = getWebhookLogs(offset, cursor.end - offset + cursor.margin);
+			int shift = cursor.shift(page);
+			if (shift > cursor.margin) {
+				//pushed past the end of the page, read it again from where the entries are now
+				cursor.end += shift;
+				cursor.margin = Math.max(2 * cursor.margin, shift);
+				continue;
+			}
+			//the overlap with the neighbouring pages is dropped by id
+			batch.addNewestFirst(entriesOf(page));
+			cursor.end = offset;
+		}
+		return batch.finish();
+	}
+
+	//offset just past the oldest entry of the window, give or take a page, found by halving the part of the log not
+	//read yet; the entries of that page which are older than the window are dropped when they are read
+	private Cursor findWindowEnd(ActivityCheckpoint checkpoint, int known, int total) throws ApiException {
+		Cursor cursor = new Cursor(total, total);
+		int low = known;
+		while (cursor.end - low > WEBHOOK_PAGE_SIZE) {
+			int middle = (low + cursor.end) >>> 1;
+			WebhooksActivityResponse probe = getWebhookLogs(middle, 1);
+			//the bounds move with the entries they point at, the probe was read where they are now
+			int shift = cursor.shift(probe);
+			low += shift;
+			cursor.end += shift;
+			if (countInWindow(entriesOf(probe), checkpoint) == 0) {
+				cursor.end = Math.max(low, Math.min(cursor.end, middle));
+			} else {
+				low = Math.max(low, middle + 1);
+			}
+		}
+		return cursor;
+	}
+
+	//number of leading entries of a newest first list which are not older than the window
+	private static int countInWindow(List<WebhooksActivityEntry> entries, ActivityCheckpoint checkpoint) {
+		int count = 0;
+		for (WebhooksActivityEntry entry : entries) {
+			Long millis = Utils.toEpochMillis(entry.getAttributes() != null ? entry.getAttributes().getCreated() : null);
+			if (millis != null && millis < checkpoint.getWindowStartMillis()) {
+				break;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	private static List<WebhooksActivityEntry> entriesOf(WebhooksActivityResponse page) {
+		return page.getData() != null ? page.getData() : Collections.<WebhooksActivityEntry>emptyList();
+	}
+
+	private <T> int emit(List<Stamped<T>> fresh, ActivityCheckpoint checkpoint, EntryHandler<T> handler) throws IOException {
+		Collections.sort(fresh, new Comparator<Stamped<T>>() {
+			@Override
+			public int compare(Stamped<T> a, Stamped<T> b) {
+				return a.millis != b.millis ? Long.compare(a.millis, b.millis) : Long.compare(a.id, b.id);
+			}
+		});
+		List<T> entries = new ArrayList<>(fresh.size());
+		for (Stamped<T> stamped : fresh) {
+			entries.add(stamped.entry);
+		}
+		if (!entries.isEmpty()) {
+			handler.onEntries(entries);
+		}
+		//only advance once the handler took the entries, a failed batch is read again by the next poll
+		for (Stamped<T> stamped : fresh) {
+			checkpoint.advance(stamped.millis, stamped.id);
+		}
+		checkpoint.save();
+		return entries.size();
+	}
+
+	//an entry whose time cannot be read is placed at the mark, where its id still tells whether it is new
+	private static <T> Stamped<T> stamp(T entry, Long id, String created, ActivityCheckpoint checkpoint) {
+		Long millis = Utils.toEpochMillis(created);
+		return new Stamped<>(entry, millis != null ? millis : checkpoint.getCreatedMillis(), id != null ? id : 0L);
+	}
+
+	private WebhooksActivityResponse getWebhookLogs(final int offset, final int limit) throws ApiException {
+		return RetryPolicy.forAccount(credential).execute("getWebhookLogs", true, new RetryPolicy.ApiCall<WebhooksActivityResponse>() {
+			@Override
+			public WebhooksActivityResponse call() throws ApiException {
+				return activityApi.getWebhookLogs(credential.getEvApiKey(), credential.getEvAccessToken(),
+					null, null, null, null, offset, limit, WEBHOOK_SORT);
+			}
+		});
+	}
+
+	//offset up to which the webhook log is still to be read, and the total it refers to
+	private static class Cursor {
+		//first number of extra entries read with every page
+		private static final int INITIAL_MARGIN = 10;
+		private int end;
+		private int total;
+		private int margin = INITIAL_MARGIN;
+
+		Cursor(int end, int total) {
+			this.end = end;
+			this.total = total;
+		}
+
+		//number of entries logged since the total was taken, which pushed the others to higher offsets
+		int shift(WebhooksActivityResponse page) {
+			Integer now = page.getTotalResults();
+			if (now == null) {
+				return 0;
+			}
+			//entries expiring from the oldest end do not move the newer ones
+			int shift = Math.max(0, now - total);
+			total = now;
+			return shift;
+		}
+	}
+
+	//new webhook log entries waiting to be handed over, at most a batch of them
+	private class WebhookBatch {
+		private final ActivityCheckpoint checkpoint;
+		private final EntryHandler<WebhooksActivityEntry> handler;
+		private final int batchSize;
+		private final List<Stamped<WebhooksActivityEntry>> pending = new ArrayList<>();
+		//pages read again after a shift overlap, ids of pending entries are not in the checkpoint yet
+		private final Set<Long> pendingIds = new HashSet<>();
+		private int handed;
+
+		WebhookBatch(ActivityCheckpoint checkpoint, EntryHandler<WebhooksActivityEntry> handler, int batchSize) {
+			this.checkpoint = checkpoint;
+			this.handler = handler;
+			this.batchSize = batchSize;
+		}
+
+		void addNewestFirst(List<WebhooksActivityEntry> entries) throws IOException {
+			for (int i = entries.size() - 1; i >= 0; i--) {
+				WebhooksActivityEntry entry = entries.get(i);
+				Stamped<WebhooksActivityEntry> stamped = stamp(entry, entry.getId(),
+					entry.getAttributes() != null ? entry.getAttributes().getCreated() : null, checkpoint);
+				if (checkpoint.isNew(stamped.millis, stamped.id) && pendingIds.add(stamped.id)) {
+					pending.add(stamped);
+					if (pending.size() >= batchSize) {
+						flush();
+					}
+				}
+			}
+		}
+
+		int finish() throws IOException {
+			flush();
+			return handed;
+		}
+
+		private void flush() throws IOException {
+			handed += emit(pending, checkpoint, handler);
+			pending.clear();
+			pendingIds.clear();
+		}
+	}
+
+	//an entry with its position in the log
+	private static class Stamped<T> {
+		private final T entry;
+		private final long millis;
+		private final long id;
+
+		Stamped(T entry, long millis, long id) {
+			this.entry = entry;
+			this.millis = millis;
+			this.id = id;
+		}
+	}
+}
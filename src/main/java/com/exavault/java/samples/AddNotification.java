@@ -6,6 +6,9 @@ import com.exavault.client.api.NotificationsApi;
 import com.exavault.client.api.ResourcesApi;
 import com.exavault.client.model.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -52,6 +55,11 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * Created download notification for /sample_notifications_[ID]/downloads
  * Created upload  notification for /sample_notifications_[ID]/uploads
  * }</pre>
+ * <p>
+ * Pass {@code --spec=notifications.json} to bring all the folder notifications of the account in line with a spec
+ * instead, see {@link NotificationSpec} for its format and {@link NotificationReconciler}. Only the missing and changed
+ * notifications are touched. Extra notifications of the same folder and action are only reported, add
+ * {@code --delete-duplicates} to delete them as well. Add {@code --dry-run} to only print what would change.
  */
 public class AddNotification {
 
@@ -69,6 +77,9 @@ public class AddNotification {
 	private static Credential credential;
 	private static ResourcesApi resourcesApi;
 	private static NotificationsApi notificationsApi;
+	private static final String SPEC = "--spec=";
+	private static final String DRY_RUN = "--dry-run";
+	private static final String DELETE_DUPLICATES = "--delete-duplicates";
 
 	public static void main(String[] args) {
 		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
@@ -76,6 +87,22 @@ public class AddNotification {
 		credential = ApiClientHelper.getCredential();
 		resourcesApi = new ResourcesApi(apiClient);
 		notificationsApi = new NotificationsApi(apiClient);
+		String spec = null;
+		boolean dryRun = false;
+		boolean deleteDuplicates = false;
+		for (String arg : args) {
+			if (arg.startsWith(SPEC)) {
+				spec = arg.substring(SPEC.length());
+			} else if (DRY_RUN.equals(arg)) {
+				dryRun = true;
+			} else if (DELETE_DUPLICATES.equals(arg)) {
+				deleteDuplicates = true;
+			}
+		}
+		if (spec != null) {
+			reconcile(Paths.get(spec), dryRun, deleteDuplicates);
+			return;
+		}
 		Random random = new Random();
 		int nextInt = Math.abs(random.nextInt());
 		NotificationResponse uploadResponse = createFolderAndAddNotification(true, nextInt);
@@ -92,6 +119,28 @@ public class AddNotification {
 		}
 	}
 
+	/*
+	 * Compare the folder notifications of the account with a spec, then add and update what differs, and delete
+	 * duplicates when asked to
+	 * See <a href="https://www.exavault.com/developer/api-docs/v2#operation/listNotifications">listNotifications</a>
+	 */
+	private static void reconcile(Path file, boolean dryRun, boolean deleteDuplicates) {
+		try {
+			NotificationSpec spec = NotificationSpec.read(file);
+			NotificationReconciler reconciler = new NotificationReconciler(notificationsApi, credential);
+			NotificationReconciler.Plan plan = reconciler.plan(spec);
+			System.out.println(spec.size() + " notifications in the spec: " + plan);
+			if (!dryRun) {
+				System.out.println("Reconciled: " + reconciler.apply(plan, deleteDuplicates));
+			}
+		} catch (ApiException e) {
+			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+			System.err.println("Exception when calling NotificationsApi#listNotifications => \n" + Utils.customErrorResponse(e));
+		} catch (IOException e) {
+			System.err.println("Exception when reading " + file + " => \n" + customErrorResponse(e));
+		}
+	}
+
 	//create folder and add notification to it
 	private static NotificationResponse createFolderAndAddNotification(boolean isUpload, int randomNumber) {
 		long folderId = createAndGetFolderId(randomNumber, isUpload);
@@ -182,7 +231,7 @@ public class AddNotification {
 		} else {
 			requestBody.setPath(String.format(BASE_FOLDER_NAME_DOWNLOAD, randomNumber));
 		}
-		long folderId = 0;
+		long folderId = -1;
 		try {
 			//The addFolder method of the ResourcesApi returns a ResourceResponse object
 			ResourceResponse result = resourcesApi.addFolder(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
@@ -190,8 +239,6 @@ public class AddNotification {
 			Resource data = result.getData();
 			if (data != null) {
 				folderId = data.getId();
-			} else {
-				folderId = -1; //set to invalid id to check further
 			}
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
@@ -2,10 +2,14 @@ package com.exavault.java.samples;
 
 
 import com.exavault.client.ApiClient;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.OkHttpClient;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -17,6 +21,16 @@ import java.util.logging.Logger;
  * <p>
  * Access tokens do not expire, so you should only need to obtain the key and token once.
  * <p>
+ * The same file can tune the HTTP client, which matters when many transfers run in parallel.
+ * All of these properties are optional:
+ * <ul>
+ * 	<li>{@code exavault.http.pool.maxIdle} maximum number of idle connections kept open</li>
+ * 	<li>{@code exavault.http.pool.keepAliveSeconds} how long an idle connection is kept open</li>
+ * 	<li>{@code exavault.http.connectTimeoutMillis}, {@code exavault.http.readTimeoutMillis} and
+ * 	{@code exavault.http.writeTimeoutMillis} timeouts of every request</li>
+ * 	<li>{@code exavault.http.maxRequests} and {@code exavault.http.maxRequestsPerHost} limits of asynchronous requests in flight</li>
+ * </ul>
+ * <p>
  */
 public class ApiClientHelper {
 
@@ -26,26 +40,111 @@ public class ApiClientHelper {
 	private static final String EXAVAULT_API_KEY = "exavault.api.Key";
 	private static final String EXAVAULT_ACCESS_TOKEN = "exavault.access.token";
 	private static final String EXAVAULT_API_URL = "exavault.api.url";
-	private static ApiClient instance;
-	private static Credential credential;
+	//Constants used for HTTP client tuning Properties
+	private static final String HTTP_POOL_MAX_IDLE = "exavault.http.pool.maxIdle";
+	private static final String HTTP_POOL_KEEP_ALIVE_SECONDS = "exavault.http.pool.keepAliveSeconds";
+	private static final String HTTP_CONNECT_TIMEOUT_MILLIS = "exavault.http.connectTimeoutMillis";
+	private static final String HTTP_READ_TIMEOUT_MILLIS = "exavault.http.readTimeoutMillis";
+	private static final String HTTP_WRITE_TIMEOUT_MILLIS = "exavault.http.writeTimeoutMillis";
+	private static final String HTTP_MAX_REQUESTS = "exavault.http.maxRequests";
+	private static final String HTTP_MAX_REQUESTS_PER_HOST = "exavault.http.maxRequestsPerHost";
+	//Defaults sized for parallel transfers, the okhttp defaults keep only 5 idle connections and 5 requests per host
+	private static final int DEFAULT_POOL_MAX_IDLE = 32;
+	private static final long DEFAULT_POOL_KEEP_ALIVE_SECONDS = 300;
+	private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	private static final int DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+	private static final int DEFAULT_WRITE_TIMEOUT_MILLIS = 60000;
+	private static final int DEFAULT_MAX_REQUESTS = 64;
+	private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 16;
+	private static volatile ApiClient instance;
+	private static volatile Credential credential;
+	private static volatile HttpSettings httpSettings;
+	private static volatile ApiClientRegistry registry;
 
 	private ApiClientHelper() {
 	}
 
 	/**
 	 * Loads the credentials from the properties file, and create an {@code ApiClient} object
+	 * <p>
+	 * Safe to call from several threads, the client is created only once and reading it afterwards does not lock
 	 *
 	 * @return the newly constructed {@code ApiClient}
 	 */
 	public static ApiClient initApiClient() {
-		if (instance == null) {
-			instance = new ApiClient();
-			initCredential();
-			if (credential != null) {
-				instance.setBasePath(credential.getApiUrl());
+		ApiClient client = instance;
+		if (client == null) {
+			synchronized (ApiClientHelper.class) {
+				client = instance;
+				if (client == null) {
+					initCredential();
+					client = new ApiClient();
+					if (credential != null) {
+						client.setBasePath(credential.getApiUrl());
+					}
+					applyHttpSettings(client, httpSettings);
+					//publish only once fully configured
+					instance = client;
+				}
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * Get the registry of {@code ApiClient}s, for programs working with several accounts in the same JVM.
+	 * Its clients use the HTTP settings of the properties file.
+	 *
+	 * @return the shared registry
+	 */
+	public static ApiClientRegistry getRegistry() {
+		ApiClientRegistry current = registry;
+		if (current == null) {
+			synchronized (ApiClientHelper.class) {
+				current = registry;
+				if (current == null) {
+					initApiClient();
+					current = new ApiClientRegistry(httpSettings, ApiClientRegistry.DEFAULT_MAX_CLIENTS);
+					registry = current;
+				}
 			}
 		}
-		return instance;
+		return current;
+	}
+
+	/**
+	 * Apply the connection pool, timeouts and dispatcher limits to the HTTP client of an {@code ApiClient}
+	 *
+	 * @param apiClient client to tune
+	 * @param settings  values to apply
+	 */
+	static void applyHttpSettings(ApiClient apiClient, HttpSettings settings) {
+		applyHttpSettings(apiClient, settings, newConnectionPool(settings), apiClient.getHttpClient().getDispatcher());
+	}
+
+	/**
+	 * Apply the timeouts and dispatcher limits to the HTTP client of an {@code ApiClient},
+	 * making it use the given connection pool and dispatcher, which may be shared with other clients
+	 *
+	 * @param apiClient      client to tune
+	 * @param settings       values to apply
+	 * @param connectionPool connection pool to use
+	 * @param dispatcher     dispatcher to use
+	 */
+	static void applyHttpSettings(ApiClient apiClient, HttpSettings settings, ConnectionPool connectionPool, Dispatcher dispatcher) {
+		apiClient.setConnectTimeout(settings.getConnectTimeoutMillis());
+		apiClient.setReadTimeout(settings.getReadTimeoutMillis());
+		apiClient.setWriteTimeout(settings.getWriteTimeoutMillis());
+		dispatcher.setMaxRequests(settings.getMaxRequests());
+		dispatcher.setMaxRequestsPerHost(settings.getMaxRequestsPerHost());
+		OkHttpClient httpClient = apiClient.getHttpClient();
+		httpClient.setConnectionPool(connectionPool);
+		httpClient.setDispatcher(dispatcher);
+	}
+
+	//connection pool sized from the settings
+	static ConnectionPool newConnectionPool(HttpSettings settings) {
+		return new ConnectionPool(settings.getMaxIdleConnections(), settings.getKeepAliveSeconds(), TimeUnit.SECONDS);
 	}
 
 	/**
@@ -59,13 +158,43 @@ public class ApiClientHelper {
 			prop.load(input);
 			credential = new Credential(prop.getProperty(EXAVAULT_API_KEY),
 				prop.getProperty(EXAVAULT_ACCESS_TOKEN), prop.getProperty(EXAVAULT_API_URL));
+			httpSettings = new HttpSettings(
+				getInt(prop, HTTP_POOL_MAX_IDLE, DEFAULT_POOL_MAX_IDLE),
+				getInt(prop, HTTP_POOL_KEEP_ALIVE_SECONDS, (int) DEFAULT_POOL_KEEP_ALIVE_SECONDS),
+				getInt(prop, HTTP_CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_TIMEOUT_MILLIS),
+				getInt(prop, HTTP_READ_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS),
+				getInt(prop, HTTP_WRITE_TIMEOUT_MILLIS, DEFAULT_WRITE_TIMEOUT_MILLIS),
+				getInt(prop, HTTP_MAX_REQUESTS, DEFAULT_MAX_REQUESTS),
+				getInt(prop, HTTP_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS_PER_HOST));
 		} catch (IOException ex) {
 			LOGGER.severe("Could not load properties file");
 			throw new IllegalStateException("Credentials could not be read");
 		}
 	}
 
+	//read an optional positive integer property
+	private static int getInt(Properties prop, String key, int defaultValue) {
+		String value = prop.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			int parsed = Integer.parseInt(value.trim());
+			if (parsed > 0) {
+				return parsed;
+			}
+		} catch (NumberFormatException e) {
+			//fall through to the warning below
+		}
+		LOGGER.warning("Ignoring invalid value '" + value + "' of " + key + ", using " + defaultValue);
+		return defaultValue;
+	}
+
 	public static Credential getCredential() {
 		return credential;
 	}
+
+	public static HttpSettings getHttpSettings() {
+		return httpSettings;
+	}
 }
@@ -0,0 +1,73 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiClient;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+
+/**
+ * Registry of {@link ApiClient}s for programs talking to many accounts from the same JVM.
+ * <p>
+ * There is one client per account (API key) and API URL. Looking up an existing client never locks, only
+ * creating a missing client does. Every client shares the same connection pool and dispatcher, so the number of
+ * open connections and requests in flight stays bounded however many accounts are in use, and connections to
+ * the same host are reused across accounts.
+ * <p>
+ * The registry holds at most {@code maxClients} clients in an {@link AccountMap}. When a new client would exceed
+ * that, the least recently used one is evicted. {@link #evictIdle(long)} also removes clients unused for a given
+ * time. Since connections belong to the shared pool, evicting a client does not close anything.
+ */
+public class ApiClientRegistry {
+	//default maximum number of clients kept
+	public static final int DEFAULT_MAX_CLIENTS = AccountMap.DEFAULT_MAX_ACCOUNTS;
+	private final AccountMap<ApiClient> clients;
+	private final HttpSettings settings;
+	private final ConnectionPool connectionPool;
+	private final Dispatcher dispatcher;
+
+	/**
+	 * @param settings   HTTP settings applied to every client
+	 * @param maxClients maximum number of clients kept
+	 */
+	public ApiClientRegistry(HttpSettings settings, int maxClients) {
+		this.settings = settings;
+		this.clients = new AccountMap<ApiClient>(maxClients) {
+			@Override
+			protected ApiClient create(Credential credential) {
+				return newClient(credential);
+			}
+		};
+		this.connectionPool = ApiClientHelper.newConnectionPool(settings);
+		this.dispatcher = new Dispatcher();
+	}
+
+	/**
+	 * Get the client of an account, creating it on first use
+	 *
+	 * @param credential credentials of the account, the API URL is used as base path
+	 * @return the client
+	 */
+	public ApiClient get(Credential credential) {
+		return clients.get(credential);
+	}
+
+	/**
+	 * Remove the clients which were not used for the given time
+	 *
+	 * @param idleMillis idle time after which a client is removed
+	 * @return number of clients removed
+	 */
+	public int evictIdle(long idleMillis) {
+		return clients.evictIdle(idleMillis);
+	}
+
+	public int size() {
+		return clients.size();
+	}
+
+	private ApiClient newClient(Credential credential) {
+		ApiClient client = new ApiClient();
+		client.setBasePath(credential.getApiUrl());
+		ApiClientHelper.applyHttpSettings(client, settings, connectionPool, dispatcher);
+		return client;
+	}
+}
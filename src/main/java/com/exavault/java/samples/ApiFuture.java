@@ -0,0 +1,356 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.squareup.okhttp.Call;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Result of an API call made with one of the {@code *Async} methods of the generated client.
+ * <p>
+ * The future is completed from the callback of the HTTP client, so no thread waits for the response.
+ * Further work is chained with {@link #addListener}, {@link #then} and {@link #thenAsync}, and many futures
+ * are joined with {@link #allAsList}. Listeners run on the thread completing the future, usually a thread of
+ * the HTTP client, so they should be short and must not block.
+ *
+ * @param <T> type of the response
+ */
+public class ApiFuture<T> implements Future<T> {
+	private T result;
+	private ApiException failure;
+	private boolean done;
+	private boolean cancelled;
+	private Call call;
+	private List<Listener<? super T>> listeners = new ArrayList<>();
+
+	/**
+	 * Notified once when the future completes
+	 *
+	 * @param <T> type of the response
+	 */
+	public interface Listener<T> {
+		void onSuccess(T result);
+
+		void onFailure(ApiException e);
+	}
+
+	/**
+	 * Synchronous step applied to a response
+	 *
+	 * @param <T> type of the response
+	 * @param <R> type of the result
+	 */
+	public interface Transform<T, R> {
+		R apply(T result) throws ApiException;
+	}
+
+	/**
+	 * Step starting another call from a response
+	 *
+	 * @param <T> type of the response
+	 * @param <R> type of the response of the next call
+	 */
+	public interface AsyncTransform<T, R> {
+		ApiFuture<R> apply(T result) throws ApiException;
+	}
+
+	public static <T> ApiFuture<T> completed(T result) {
+		ApiFuture<T> future = new ApiFuture<>();
+		future.complete(result);
+		return future;
+	}
+
+	public static <T> ApiFuture<T> failed(ApiException e) {
+		ApiFuture<T> future = new ApiFuture<>();
+		future.fail(e);
+		return future;
+	}
+
+	/**
+	 * Join futures into one holding all their results, in the same order, or the first failure
+	 *
+	 * @param futures futures to join
+	 * @param <T>     type of the responses
+	 * @return future of all the results
+	 */
+	public static <T> ApiFuture<List<T>> allAsList(List<? extends ApiFuture<? extends T>> futures) {
+		final ApiFuture<List<T>> all = new ApiFuture<>();
+		final int size = futures.size();
+		if (size == 0) {
+			all.complete(Collections.<T>emptyList());
+			return all;
+		}
+		final Object[] results = new Object[size];
+		final AtomicInteger remaining = new AtomicInteger(size);
+		for (int i = 0; i < size; i++) {
+			final int index = i;
+			futures.get(i).addListener(new Listener<T>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public void onSuccess(T result) {
+					results[index] = result;
+					if (remaining.decrementAndGet() == 0) {
+						List<T> list = new ArrayList<>(size);
+						for (Object value : results) {
+							list.add((T) value);
+						}
+						all.complete(list);
+					}
+				}
+
+				@Override
+				public void onFailure(ApiException e) {
+					all.fail(e);
+				}
+			});
+		}
+		return all;
+	}
+
+	/**
+	 * Complete the future with a response
+	 *
+	 * @param value the response
+	 * @return false if the future was already completed
+	 */
+	public boolean complete(T value) {
+		List<Listener<? super T>> toNotify;
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+			result = value;
+			toNotify = finish();
+		}
+		for (Listener<? super T> listener : toNotify) {
+			listener.onSuccess(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Complete the future with an error
+	 *
+	 * @param e the error
+	 * @return false if the future was already completed
+	 */
+	public boolean fail(ApiException e) {
+		List<Listener<? super T>> toNotify;
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+			failure = e;
+			toNotify = finish();
+		}
+		for (Listener<? super T> listener : toNotify) {
+			listener.onFailure(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Register a listener, called right away if the future is already complete
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener(Listener<? super T> listener) {
+		synchronized (this) {
+			if (!done) {
+				listeners.add(listener);
+				return;
+			}
+		}
+		if (failure != null) {
+			listener.onFailure(failure);
+		} else {
+			listener.onSuccess(result);
+		}
+	}
+
+	/**
+	 * Future of the response transformed by {@code transform}
+	 *
+	 * @param transform step applied to the response
+	 * @param <R>       type of the result
+	 * @return future of the result
+	 */
+	public <R> ApiFuture<R> then(final Transform<? super T, R> transform) {
+		final ApiFuture<R> next = new ApiFuture<>();
+		addListener(new Listener<T>() {
+			@Override
+			public void onSuccess(T value) {
+				try {
+					next.complete(transform.apply(value));
+				} catch (ApiException e) {
+					next.fail(e);
+				} catch (RuntimeException e) {
+					next.fail(new ApiException(e));
+				}
+			}
+
+			@Override
+			public void onFailure(ApiException e) {
+				next.fail(e);
+			}
+		});
+		return next;
+	}
+
+	/**
+	 * Future of the call started by {@code transform} from the response
+	 *
+	 * @param transform step starting the next call
+	 * @param <R>       type of the response of the next call
+	 * @return future of the response of the next call
+	 */
+	public <R> ApiFuture<R> thenAsync(final AsyncTransform<? super T, R> transform) {
+		final ApiFuture<R> next = new ApiFuture<>();
+		addListener(new Listener<T>() {
+			@Override
+			public void onSuccess(T value) {
+				try {
+					transform.apply(value).addListener(new Listener<R>() {
+						@Override
+						public void onSuccess(R result) {
+							next.complete(result);
+						}
+
+						@Override
+						public void onFailure(ApiException e) {
+							next.fail(e);
+						}
+					});
+				} catch (ApiException e) {
+					next.fail(e);
+				} catch (RuntimeException e) {
+					next.fail(new ApiException(e));
+				}
+			}
+
+			@Override
+			public void onFailure(ApiException e) {
+				next.fail(e);
+			}
+		});
+		return next;
+	}
+
+	/**
+	 * Wait for the response
+	 *
+	 * @return the response
+	 * @throws ApiException the call failed or the thread was interrupted
+	 */
+	public T join() throws ApiException {
+		try {
+			await(0);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApiException(e);
+		}
+		return report();
+	}
+
+	@Override
+	public T get() throws InterruptedException, ExecutionException {
+		await(0);
+		return unwrap();
+	}
+
+	@Override
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!await(Math.max(unit.toNanos(timeout), 1))) {
+			throw new TimeoutException();
+		}
+		return unwrap();
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		Call toCancel;
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+			cancelled = true;
+			toCancel = call;
+		}
+		if (toCancel != null) {
+			toCancel.cancel();
+		}
+		return fail(new ApiException(new CancellationException()));
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	//attach the HTTP call so that cancelling the future cancels it, a future cancelled before it was attached cancels it now
+	void setCall(Call call) {
+		synchronized (this) {
+			if (!done && !cancelled) {
+				this.call = call;
+				return;
+			}
+		}
+		call.cancel();
+	}
+
+	private List<Listener<? super T>> finish() {
+		done = true;
+		call = null;
+		notifyAll();
+		List<Listener<? super T>> toNotify = listeners;
+		listeners = Collections.emptyList();
+		return toNotify;
+	}
+
+	//wait until done, at most timeoutNanos unless it is 0
+	private synchronized boolean await(long timeoutNanos) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!done) {
+			if (timeoutNanos == 0) {
+				wait();
+			} else {
+				long left = deadline - System.nanoTime();
+				if (left <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, left);
+			}
+		}
+		return true;
+	}
+
+	private synchronized T report() throws ApiException {
+		if (failure != null) {
+			throw failure;
+		}
+		return result;
+	}
+
+	private synchronized T unwrap() throws ExecutionException {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return result;
+	}
+}
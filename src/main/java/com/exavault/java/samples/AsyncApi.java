@@ -0,0 +1,151 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiCallback;
+import com.exavault.client.ApiClient;
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.api.UsersApi;
+import com.exavault.client.model.ResourceCollectionResponse;
+import com.exavault.client.model.ResourceResponse;
+import com.exavault.client.model.UserCollectionResponse;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non blocking variants of the upload, download, listing and user calls used by the samples.
+ * <p>
+ * Every method sends its request through the {@code *Async} method of the generated client and returns at once
+ * with an {@link ApiFuture}. Requests wait in the queue of the HTTP client dispatcher rather than in threads
+ * of our own, so thousands of them can be in flight; how many actually run at the same time is bounded by
+ * the {@code exavault.http.maxRequests} and {@code exavault.http.maxRequestsPerHost} settings.
+ * <p>
+ * Unlike the blocking calls, these are not retried by the {@link RetryPolicy}, which sleeps between attempts.
+ */
+public class AsyncApi {
+	private final ResourcesApi resourcesApi;
+	private final UsersApi usersApi;
+	private final Credential credential;
+
+	public AsyncApi(ApiClient apiClient, Credential credential) {
+		this.resourcesApi = new ResourcesApi(apiClient);
+		this.usersApi = new UsersApi(apiClient);
+		this.credential = credential;
+	}
+
+	/**
+	 * Upload a file in a single request
+	 * <p>
+	 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/uploadFile">uploadFile</a>
+	 *
+	 * @param file           file to be uploaded, at most {@link ChunkedUpload#MAX_RANGE_SIZE} bytes
+	 * @param path           destination path for the file being uploaded, including the file name
+	 * @param allowOverwrite True if an existing file at {@code path} should be overwritten
+	 * @return future of the uploaded resource
+	 */
+	public ApiFuture<ResourceResponse> uploadFile(File file, String path, boolean allowOverwrite) {
+		long fileSize = file.length();
+		if (fileSize > ChunkedUpload.MAX_RANGE_SIZE) {
+			return ApiFuture.failed(new ApiException(file + " is too large for a single request, use ChunkedUpload"));
+		}
+		ApiFuture<ResourceResponse> future = new ApiFuture<>();
+		try {
+			future.setCall(resourcesApi.uploadFileAsync(credential.getEvApiKey(), credential.getEvAccessToken(),
+				path, (int) fileSize, file, 0, false, allowOverwrite, completing(future)));
+		} catch (ApiException e) {
+			future.fail(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Download resources to a temporary file. Several resources are zipped by the server.
+	 * <p>
+	 * See <a href="https://www.exavault.com/developer/api-docs/V2#operation/download">download</a>
+	 *
+	 * @param resources    resource identifiers to download, paths or {@code id:} identifiers
+	 * @param downloadName name of the zip file the server creates when several resources are requested
+	 * @return future of the downloaded file
+	 */
+	public ApiFuture<File> download(List<String> resources, String downloadName) {
+		ApiFuture<File> future = new ApiFuture<>();
+		try {
+			future.setCall(resourcesApi.downloadAsync(credential.getEvApiKey(), credential.getEvAccessToken(),
+				resources, downloadName, completing(future)));
+		} catch (ApiException e) {
+			future.fail(e);
+		}
+		return future;
+	}
+
+	/**
+	 * List one page of resources, parameters are the ones of
+	 * <a href="https://www.exavault.com/developer/api-docs/V2#operation/listResources">listResources</a>
+	 *
+	 * @param resource resource identifier to list, path or id
+	 * @param sort     sort fields, may be null
+	 * @param offset   first result of the page
+	 * @param limit    size of the page, at most {@link ResourcePaginator#MAX_PAGE_SIZE}
+	 * @param type     resource type filter, may be null
+	 * @param name     text to match resource names, may be null
+	 * @param include  relationships to include, may be null
+	 * @return future of the page
+	 */
+	public ApiFuture<ResourceCollectionResponse> listResources(String resource, String sort, int offset, int limit,
+	                                                           String type, String name, String include) {
+		ApiFuture<ResourceCollectionResponse> future = new ApiFuture<>();
+		try {
+			future.setCall(resourcesApi.listResourcesAsync(credential.getEvApiKey(), credential.getEvAccessToken(),
+				resource, sort, offset, limit, type, name, include, completing(future)));
+		} catch (ApiException e) {
+			future.fail(e);
+		}
+		return future;
+	}
+
+	/**
+	 * List one page of the users of the account
+	 * <p>
+	 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/listUsers">listUsers</a>
+	 *
+	 * @param offset  first user of the page
+	 * @param limit   size of the page
+	 * @param sort    sort fields, may be null
+	 * @param include relationships to include, may be null
+	 * @return future of the page
+	 */
+	public ApiFuture<UserCollectionResponse> listUsers(int offset, int limit, String sort, String include) {
+		ApiFuture<UserCollectionResponse> future = new ApiFuture<>();
+		try {
+			future.setCall(usersApi.listUsersAsync(credential.getEvApiKey(), credential.getEvAccessToken(), null, null,
+				null, null, null, null, null, offset, sort, limit, include, completing(future)));
+		} catch (ApiException e) {
+			future.fail(e);
+		}
+		return future;
+	}
+
+	//callback completing the future with the outcome of the call
+	private static <T> ApiCallback<T> completing(final ApiFuture<T> future) {
+		return new ApiCallback<T>() {
+			@Override
+			public void onFailure(ApiException e, int statusCode, Map<String, List<String>> responseHeaders) {
+				future.fail(e);
+			}
+
+			@Override
+			public void onSuccess(T result, int statusCode, Map<String, List<String>> responseHeaders) {
+				future.complete(result);
+			}
+
+			@Override
+			public void onUploadProgress(long bytesWritten, long contentLength, boolean done) {
+			}
+
+			@Override
+			public void onDownloadProgress(long bytesRead, long contentLength, boolean done) {
+			}
+		};
+	}
+}
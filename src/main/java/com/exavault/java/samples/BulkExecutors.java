@@ -0,0 +1,252 @@
+package com.exavault.java.samples;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors for the bulk loops of the samples: uploads, downloads and user provisioning.
+ * <p>
+ * By default a bounded pool of platform threads is used, and at most {@code workers} tasks run at the same time.
+ * With {@code -Dexavault.executor=virtual} on Java 21 or later, every task runs on its own virtual thread instead.
+ * The tasks keep making blocking API calls, but a blocked virtual thread does not hold an OS thread, so far more
+ * transfers can be waiting on the network at once: up to {@code -Dexavault.virtual.concurrency}, by default
+ * {@value #DEFAULT_VIRTUAL_CONCURRENCY}, whatever {@code workers} the engine asked for. The virtual thread
+ * executor is looked up by reflection, so the samples still compile for Java 7 and only need a recent JDK to run.
+ * <p>
+ * Both executors apply back-pressure: once {@code queueCapacity} tasks wait for a running slot, the submitting
+ * thread waits (virtual threads) or runs the task itself (platform threads).
+ */
+public final class BulkExecutors {
+	//system property selecting the executor, "platform" or "virtual"
+	public static final String EXECUTOR_PROPERTY = "exavault.executor";
+	public static final String PLATFORM = "platform";
+	public static final String VIRTUAL = "virtual";
+	//default number of platform threads of the engines
+	public static final int DEFAULT_WORKERS = 8;
+	//default number of tasks waiting for a running slot before the submitting thread runs one itself or waits
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+	//system property setting the number of tasks running at the same time on virtual threads
+	public static final String VIRTUAL_CONCURRENCY_PROPERTY = "exavault.virtual.concurrency";
+	//default number of tasks running at the same time on virtual threads
+	public static final int DEFAULT_VIRTUAL_CONCURRENCY = 64;
+	private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+	private BulkExecutors() {
+	}
+
+	/**
+	 * Whether the running JVM supports virtual threads
+	 *
+	 * @return true on Java 21 or later
+	 */
+	public static boolean isVirtualThreadsAvailable() {
+		return NEW_VIRTUAL_EXECUTOR != null;
+	}
+
+	/**
+	 * Create the executor selected by the {@value #EXECUTOR_PROPERTY} system property
+	 *
+	 * @param workers       number of platform threads
+	 * @param queueCapacity number of tasks allowed to wait for a running slot
+	 * @return the executor, to be shut down by the caller
+	 */
+	public static ExecutorService newBulkExecutor(int workers, int queueCapacity) {
+		return newExecutor(System.getProperty(EXECUTOR_PROPERTY, PLATFORM), workers, queueCapacity);
+	}
+
+	/**
+	 * Create an executor of the given kind, the way {@link #newBulkExecutor(int, int)} does for the selected one
+	 *
+	 * @param kind          {@value #PLATFORM} or {@value #VIRTUAL}
+	 * @param workers       number of platform threads
+	 * @param queueCapacity number of tasks allowed to wait for a running slot
+	 * @return the executor, to be shut down by the caller
+	 */
+	public static ExecutorService newExecutor(String kind, int workers, int queueCapacity) {
+		if (VIRTUAL.equalsIgnoreCase(kind)) {
+			if (isVirtualThreadsAvailable()) {
+				return newVirtualExecutor(getVirtualConcurrency(), queueCapacity);
+			}
+			System.err.println("Virtual threads need Java 21 or later, using platform threads");
+		} else if (!PLATFORM.equalsIgnoreCase(kind)) {
+			System.err.println("Ignoring invalid " + EXECUTOR_PROPERTY + "=" + kind + ", using platform threads");
+		}
+		return newPlatformExecutor(workers, queueCapacity);
+	}
+
+	/**
+	 * Number of tasks the selected executor runs at the same time, for limits which should follow it
+	 *
+	 * @param workers number of platform threads
+	 * @return {@code workers}, or the virtual thread concurrency when virtual threads are selected and available
+	 */
+	public static int getConcurrency(int workers) {
+		boolean virtual = VIRTUAL.equalsIgnoreCase(System.getProperty(EXECUTOR_PROPERTY, PLATFORM));
+		return virtual && isVirtualThreadsAvailable() ? getVirtualConcurrency() : workers;
+	}
+
+	/**
+	 * Number of tasks running at the same time on virtual threads, set by {@value #VIRTUAL_CONCURRENCY_PROPERTY}
+	 *
+	 * @return the concurrency, {@value #DEFAULT_VIRTUAL_CONCURRENCY} when the property is missing or invalid
+	 */
+	public static int getVirtualConcurrency() {
+		String value = System.getProperty(VIRTUAL_CONCURRENCY_PROPERTY);
+		if (value == null) {
+			return DEFAULT_VIRTUAL_CONCURRENCY;
+		}
+		try {
+			int concurrency = Integer.parseInt(value.trim());
+			if (concurrency > 0) {
+				return concurrency;
+			}
+		} catch (NumberFormatException ignored) {
+			//reported below
+		}
+		System.err.println("Ignoring invalid " + VIRTUAL_CONCURRENCY_PROPERTY + "=" + value + ", using " + DEFAULT_VIRTUAL_CONCURRENCY);
+		return DEFAULT_VIRTUAL_CONCURRENCY;
+	}
+
+	/**
+	 * Fixed pool of platform threads with a bounded queue, the submitting thread runs tasks when it is full
+	 *
+	 * @param workers       number of threads
+	 * @param queueCapacity number of tasks allowed to wait for a thread
+	 * @return the executor
+	 */
+	public static ExecutorService newPlatformExecutor(int workers, int queueCapacity) {
+		return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * One virtual thread per task, with at most {@code workers} of them running and {@code queueCapacity} waiting
+	 * to run before the submitting thread waits
+	 *
+	 * @param workers       number of tasks running at the same time, typically {@link #getVirtualConcurrency()}
+	 * @param queueCapacity number of tasks allowed to wait for a running slot
+	 * @return the executor
+	 * @throws UnsupportedOperationException virtual threads are not available
+	 */
+	public static ExecutorService newVirtualExecutor(int workers, int queueCapacity) {
+		if (NEW_VIRTUAL_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+		}
+		try {
+			return new BoundedExecutor((ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null), workers, queueCapacity);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Could not create a virtual thread executor", e);
+		}
+	}
+
+	/**
+	 * Shut an executor down and wait for all its tasks, however long they take
+	 *
+	 * @param executor the executor
+	 * @return false if the waiting thread was interrupted, the executor is then shut down now and the thread keeps
+	 * its interrupt status
+	 */
+	public static boolean awaitCompletion(ExecutorService executor) {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				//keep waiting, large transfers can take hours
+			}
+			return true;
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static Method findVirtualExecutorFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Limits the number of running and of pending tasks of an executor which never queues, such as one virtual
+	 * thread per task. A task waiting for a running slot holds a blocked virtual thread, not an OS thread.
+	 */
+	private static class BoundedExecutor extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final Semaphore running;
+		private final Semaphore permits;
+
+		BoundedExecutor(ExecutorService delegate, int workers, int queueCapacity) {
+			this.delegate = delegate;
+			this.running = new Semaphore(workers);
+			this.permits = new Semaphore(workers + queueCapacity);
+		}
+
+		@Override
+		public void execute(final Runnable command) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(e);
+			}
+			try {
+				delegate.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							running.acquire();
+							try {
+								command.run();
+							} finally {
+								running.release();
+							}
+						} catch (InterruptedException e) {
+							//shut down before the task got to run
+							Thread.currentThread().interrupt();
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiClient;
+import com.exavault.client.ApiException;
+import com.exavault.client.Pair;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceResponse;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Headers;
+import com.squareup.okhttp.MultipartBuilder;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
+
+/**
+ * Resumable upload of large files.
+ * <p>
+ * The file is sent as a sequence of byte ranges. The first range creates the file, every following one is sent
+ * with {@code resume=true} and its position in {@code offsetBytes}, the same parameters
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/uploadFile">uploadFile</a> uses.
+ * After each acknowledged range the new offset is written to an {@link UploadJournal}, so when the program is
+ * restarted after a failure the upload continues from the last acknowledged range instead of from zero. A journal
+ * whose last range was already acknowledged only needs the file looked up, no empty range is sent.
+ * <p>
+ * The request is built here rather than through {@code ResourcesApi#uploadFile}, because the generated method
+ * always sends the whole file as body and only accepts sizes and offsets that fit in an {@code int}.
+ * Sizes and offsets are 64 bit all the way down to the request, and the range is streamed from a
+ * {@link java.nio.channels.FileChannel}, so files of any size can be sent. A single range is still limited
+ * to {@link #MAX_RANGE_SIZE} bytes, larger ranges are rejected.
+ */
+public class ChunkedUpload {
+	//default size of one range, in bytes
+	public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+	//default folder for the checkpoint journals, relative to the working directory
+	public static final String DEFAULT_JOURNAL_DIR = ".upload-journal";
+	//largest payload a single upload request can carry, in bytes
+	public static final long MAX_RANGE_SIZE = Integer.MAX_VALUE;
+	private static final String UPLOAD_PATH = "/resources/upload";
+	private final ApiClient apiClient;
+	private final Credential credential;
+	private final long chunkSize;
+	private final File journalDir;
+
+	public ChunkedUpload(ApiClient apiClient, Credential credential) {
+		this(apiClient, credential, DEFAULT_CHUNK_SIZE, new File(DEFAULT_JOURNAL_DIR));
+	}
+
+	/**
+	 * @param apiClient  client used to send the requests
+	 * @param credential Credentials
+	 * @param chunkSize  size of one range, in bytes
+	 * @param journalDir folder holding the checkpoint journals
+	 */
+	public ChunkedUpload(ApiClient apiClient, Credential credential, long chunkSize, File journalDir) {
+		if (chunkSize < 1 || chunkSize > MAX_RANGE_SIZE) {
+			throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_RANGE_SIZE);
+		}
+		this.apiClient = apiClient;
+		this.credential = credential;
+		this.chunkSize = chunkSize;
+		this.journalDir = journalDir;
+	}
+
+	/**
+	 * Upload a file range by range, resuming a previous attempt if its journal is found
+	 *
+	 * @param file file to be uploaded
+	 * @param path destination path for the file being uploaded, including the file name
+	 * @return response of the last range
+	 * @throws ApiException a range was rejected, the journal keeps the progress made so far
+	 * @throws IOException  the file or the journal could not be read or written
+	 */
+	public ResourceResponse upload(File file, String path) throws ApiException, IOException {
+		return upload(file, path, false);
+	}
+
+	/**
+	 * Upload a file range by range, resuming a previous attempt if its journal is found
+	 *
+	 * @param file           file to be uploaded
+	 * @param path           destination path for the file being uploaded, including the file name
+	 * @param allowOverwrite True if an existing file at the destination should be replaced.
+	 *                       False if a different file name should be generated.
+	 * @return response of the last range
+	 * @throws ApiException a range was rejected, the journal keeps the progress made so far
+	 * @throws IOException  the file or the journal could not be read or written
+	 */
+	public ResourceResponse upload(final File file, String path, final boolean allowOverwrite) throws ApiException, IOException {
+		UploadJournal journal = UploadJournal.open(journalDir, file, path);
+		final long fileSize = file.length();
+		long offset = journal.getAcknowledged();
+		String remotePath = journal.getRemotePath();
+		if (offset > 0 && offset >= fileSize) {
+			//the last range was acknowledged but the journal was not deleted, there is nothing left to send
+			ResourceResponse result = getResourceInfo(remotePath);
+			journal.delete();
+			return result;
+		}
+		if (offset > 0) {
+			System.out.println("Resuming " + remotePath + " at byte " + offset + " of " + fileSize);
+		}
+		ResourceResponse result = null;
+		do {
+			final long rangeOffset = offset;
+			final long length = Math.min(chunkSize, fileSize - offset);
+			final String rangePath = remotePath;
+			//a range lands at a fixed offset, sending it again is harmless except for a first range creating a new name
+			result = RetryPolicy.forAccount(credential).execute("uploadFile", offset > 0 || allowOverwrite,
+				new RetryPolicy.ApiCall<ResourceResponse>() {
+					@Override
+					public ResourceResponse call() throws ApiException {
+						return uploadRange(file, rangePath, fileSize, rangeOffset, length, allowOverwrite);
+					}
+				});
+			offset += length;
+			//the server may have renamed the file on the first range, later ranges must go to the same file
+			Resource data = result.getData();
+			if (data != null && data.getAttributes() != null && data.getAttributes().getPath() != null) {
+				remotePath = data.getAttributes().getPath();
+			}
+			journal.acknowledge(offset, remotePath);
+		} while (offset < fileSize);
+		journal.delete();
+		return result;
+	}
+
+	//the file a previous attempt completed, reported with the status of an upload so callers count it as uploaded
+	private ResourceResponse getResourceInfo(final String remotePath) throws ApiException {
+		final ResourcesApi resourcesApi = new ResourcesApi(apiClient);
+		ResourceResponse result = RetryPolicy.forAccount(credential).execute("getResourceInfo", true, new RetryPolicy.ApiCall<ResourceResponse>() {
+			@Override
+			public ResourceResponse call() throws ApiException {
+				return resourcesApi.getResourceInfo(credential.getEvApiKey(), credential.getEvAccessToken(), remotePath, null);
+			}
+		});
+		result.setResponseStatus(RESPONSE_CODE_201);
+		return result;
+	}
+
+	/**
+	 * Send one range of the file
+	 *
+	 * @param file     file to be uploaded
+	 * @param path     destination path
+	 * @param fileSize size of the complete file, in bytes
+	 * @param offset   first byte of the range
+	 * @param length   number of bytes in the range
+	 * @param allowOverwrite True if the first range should replace an existing file at the destination
+	 * @return response back from the upload endpoint
+	 * @throws ApiException request could not be completed normally
+	 */
+	public ResourceResponse uploadRange(File file, String path, long fileSize, long offset, long length,
+	                                    boolean allowOverwrite) throws ApiException {
+		if (length > MAX_RANGE_SIZE) {
+			throw new IllegalArgumentException("Range of " + length + " bytes exceeds the " + MAX_RANGE_SIZE + " bytes upload limit");
+		}
+		if (offset < 0 || offset + length > fileSize) {
+			throw new IllegalArgumentException("Range " + offset + "+" + length + " is outside of a " + fileSize + " bytes file");
+		}
+		List<Pair> queryParams = new ArrayList<>();
+		queryParams.addAll(apiClient.parameterToPair("path", path));
+		queryParams.addAll(apiClient.parameterToPair("fileSize", fileSize));
+		//True if a range continues a file already on the server
+		queryParams.addAll(apiClient.parameterToPair("resume", offset > 0));
+		//Only the first range may replace an existing file, later ranges continue the file it created
+		queryParams.addAll(apiClient.parameterToPair("allowOverwrite", allowOverwrite && offset == 0));
+
+		Map<String, String> headerParams = new HashMap<>();
+		headerParams.put("ev-api-key", credential.getEvApiKey());
+		headerParams.put("ev-access-token", credential.getEvAccessToken());
+		headerParams.put("offsetBytes", String.valueOf(offset));
+		headerParams.put("Accept", "application/json");
+
+		RequestBody body = new MultipartBuilder()
+			.type(MultipartBuilder.FORM)
+			.addPart(Headers.of("Content-Disposition", "form-data; name=\"file\"; filename=\"" + file.getName() + "\""),
+				new FileRangeRequestBody(file, offset, length))
+			.build();
+		Request.Builder builder = new Request.Builder()
+			.url(apiClient.buildUrl(UPLOAD_PATH, queryParams, new ArrayList<Pair>()))
+			.post(body);
+		apiClient.processHeaderParams(headerParams, builder);
+		Call call = apiClient.getHttpClient().newCall(builder.build());
+		return apiClient.<ResourceResponse>execute(call, ResourceResponse.class).getData();
+	}
+}
@@ -0,0 +1,196 @@
+package com.exavault.java.samples;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads back the files written by {@link ColumnarSink}, one row at a time.
+ * <p>
+ * The schema comes from the header of the file. A row group is decoded when the first of its rows is read, so
+ * reading needs memory for a single group however many rows the file has. Values come back as {@link Long} for
+ * {@code LONG} columns, epoch milliseconds as {@link Long} for {@code TIMESTAMP} columns, {@link Boolean} for
+ * {@code BOOLEAN} columns and {@link String} for the others, null for a missing value. The dictionaries are kept
+ * for the whole file, but a writer never puts more than {@link ColumnarSink#MAX_DICTIONARY_SIZE} entries in one.
+ * Files of the first version, whose dictionaries were unbounded, can still be read.
+ */
+public class ColumnarReader implements Closeable {
+	private static final byte[] MAGIC = {'E', 'V', 'C', 'O', 'L'};
+	private static final int VERSION = 2;
+	//first version, where dictionary values are the index of their entry and there are no plain strings
+	private static final int UNBOUNDED_DICTIONARY_VERSION = 1;
+	private final DataInputStream in;
+	private final int version;
+	private final ExportSchema schema = new ExportSchema();
+	private final List<List<String>> dictionaries = new ArrayList<>();
+	private Object[][] group = new Object[0][];
+	private int next;
+	private boolean finished;
+
+	/**
+	 * @param in the file, positioned at its start
+	 * @throws IOException the header could not be read or is not the one of a columnar export
+	 */
+	public ColumnarReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+		byte[] magic = new byte[MAGIC.length];
+		this.in.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a columnar export");
+		}
+		this.version = this.in.readUnsignedByte();
+		if (version != VERSION && version != UNBOUNDED_DICTIONARY_VERSION) {
+			throw new IOException("Unsupported columnar export version " + version);
+		}
+		ExportSchema.Type[] types = ExportSchema.Type.values();
+		int columns = (int) readVarint();
+		for (int i = 0; i < columns; i++) {
+			String name = this.in.readUTF();
+			int type = this.in.readUnsignedByte();
+			if (type >= types.length) {
+				throw new IOException("Unknown type " + type + " of column " + name);
+			}
+			schema.add(name, types[type]);
+			dictionaries.add(new ArrayList<String>());
+		}
+	}
+
+	public ExportSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Read the next row
+	 *
+	 * @return values of the columns, in schema order, null when there are no more rows
+	 * @throws IOException the file could not be read or is truncated
+	 */
+	public Object[] read() throws IOException {
+		while (next == group.length) {
+			if (finished) {
+				return null;
+			}
+			readGroup();
+		}
+		Object[] row = group[next];
+		group[next++] = null;
+		return row;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void readGroup() throws IOException {
+		int rows = (int) readVarint();
+		next = 0;
+		if (rows == 0) {
+			finished = true;
+			group = new Object[0][];
+			return;
+		}
+		group = new Object[rows][schema.size()];
+		for (int c = 0; c < schema.size(); c++) {
+			readColumn(c, rows);
+		}
+	}
+
+	private void readColumn(int index, int rows) throws IOException {
+		boolean[] present = readBits(rows);
+		int presentCount = 0;
+		for (boolean value : present) {
+			if (value) {
+				presentCount++;
+			}
+		}
+		switch (schema.getType(index)) {
+			case LONG:
+			case TIMESTAMP:
+				long previous = 0;
+				for (int r = 0; r < rows; r++) {
+					if (present[r]) {
+						long zigzag = readVarint();
+						previous += (zigzag >>> 1) ^ -(zigzag & 1);
+						group[r][index] = previous;
+					}
+				}
+				break;
+			case BOOLEAN:
+				boolean[] values = readBits(presentCount);
+				int v = 0;
+				for (int r = 0; r < rows; r++) {
+					if (present[r]) {
+						group[r][index] = values[v++];
+					}
+				}
+				break;
+			case DICTIONARY:
+				List<String> dictionary = dictionaries.get(index);
+				int added = (int) readVarint();
+				for (int i = 0; i < added; i++) {
+					dictionary.add(readString());
+				}
+				for (int r = 0; r < rows; r++) {
+					if (present[r]) {
+						int id = (int) readVarint();
+						if (version != UNBOUNDED_DICTIONARY_VERSION && id-- == 0) {
+							group[r][index] = readString();
+							continue;
+						}
+						if (id >= dictionary.size()) {
+							throw new IOException("Unknown dictionary entry " + id + " of column " + schema.getName(index));
+						}
+						group[r][index] = dictionary.get(id);
+					}
+				}
+				break;
+			default:
+				for (int r = 0; r < rows; r++) {
+					if (present[r]) {
+						group[r][index] = readString();
+					}
+				}
+		}
+	}
+
+	//bits are stored least significant first, padded to whole bytes
+	private boolean[] readBits(int count) throws IOException {
+		boolean[] bits = new boolean[count];
+		int current = 0;
+		for (int i = 0; i < count; i++) {
+			if (i % 8 == 0) {
+				current = in.readUnsignedByte();
+			}
+			bits[i] = (current & (1 << (i % 8))) != 0;
+		}
+		return bits;
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes = new byte[(int) readVarint()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Truncated columnar export");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+}
@@ -0,0 +1,204 @@
+package com.exavault.java.samples;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows in a compact binary format, stored column by column in row groups.
+ * <p>
+ * Rows are buffered until a group of {@link #ROW_GROUP_SIZE} rows is full, then the group is written one column
+ * after the other, so the values of a column are next to each other and a loader can decode them in a tight loop.
+ * Integers are variable length, and the types of the {@link ExportSchema} pick the encoding of each column:
+ * <ul>
+ * 	<li>{@code LONG}: zigzag encoded difference with the previous value of the column in the group</li>
+ * 	<li>{@code TIMESTAMP}: epoch milliseconds, encoded like {@code LONG}. Texts without an offset are taken as UTC,
+ * 	texts that cannot be parsed are written as null</li>
+ * 	<li>{@code DICTIONARY}: index in a dictionary shared by all the groups, each group first lists the entries it adds.
+ * 	A dictionary stops growing at {@link #MAX_DICTIONARY_SIZE} entries, later values missing from it are written as
+ * 	plain strings, so a column with mostly distinct values cannot make the export hold all of them</li>
+ * 	<li>{@code BOOLEAN}: one bit per present value</li>
+ * 	<li>{@code STRING}: UTF-8 bytes prefixed with their length</li>
+ * </ul>
+ * Layout of the file:
+ * <pre>
+ * "EVCOL" version:byte columns:varint (name:utf type:byte){columns}
+ * group* 0:varint
+ * group  = rows:varint column{columns}
+ * column = presence:bits(rows) [newEntries:varint (length:varint bytes){newEntries}] values
+ * </pre>
+ * where the presence bits, least significant bit first, tell which rows have a value, and only present values
+ * are stored. The dictionary entries are there for {@code DICTIONARY} columns only, whose values are the index of
+ * their entry plus one, or 0 followed by the string when it is not in the dictionary. Names are written with
+ * {@link DataOutputStream#writeUTF(String)}, types are the ordinals of {@link ExportSchema.Type}, varints are
+ * unsigned LEB128 and bit sets are padded to whole bytes. {@link ColumnarReader} reads the files back.
+ */
+public class ColumnarSink implements ExportSink {
+	//number of rows written together
+	public static final int ROW_GROUP_SIZE = 4096;
+	//largest number of entries in the dictionary of a column
+	public static final int MAX_DICTIONARY_SIZE = 16384;
+	private static final byte[] MAGIC = {'E', 'V', 'C', 'O', 'L'};
+	private static final int VERSION = 2;
+	private final DataOutputStream out;
+	private final ExportSchema schema;
+	private final Object[][] rows = new Object[ROW_GROUP_SIZE][];
+	private final List<Map<String, Integer>> dictionaries;
+	private int rowCount;
+
+	public ColumnarSink(OutputStream out, ExportSchema schema) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.schema = schema;
+		this.dictionaries = new ArrayList<>(schema.size());
+		for (int i = 0; i < schema.size(); i++) {
+			dictionaries.add(new HashMap<String, Integer>());
+		}
+		this.out.write(MAGIC);
+		this.out.writeByte(VERSION);
+		writeVarint(schema.size());
+		for (int i = 0; i < schema.size(); i++) {
+			this.out.writeUTF(schema.getName(i));
+			this.out.writeByte(schema.getType(i).ordinal());
+		}
+	}
+
+	@Override
+	public void write(Object... values) throws IOException {
+		rows[rowCount++] = values.clone();
+		if (rowCount == ROW_GROUP_SIZE) {
+			flushGroup();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flushGroup();
+			writeVarint(0);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void flushGroup() throws IOException {
+		if (rowCount == 0) {
+			return;
+		}
+		writeVarint(rowCount);
+		Object[] column = new Object[rowCount];
+		for (int c = 0; c < schema.size(); c++) {
+			ExportSchema.Type type = schema.getType(c);
+			for (int r = 0; r < rowCount; r++) {
+				Object value = c < rows[r].length ? rows[r][c] : null;
+				column[r] = type == ExportSchema.Type.TIMESTAMP ? Utils.toEpochMillis(value) : value;
+			}
+			writeColumn(c, type, column);
+		}
+		for (int r = 0; r < rowCount; r++) {
+			rows[r] = null;
+		}
+		rowCount = 0;
+	}
+
+	private void writeColumn(int index, ExportSchema.Type type, Object[] column) throws IOException {
+		writeBits(column, null);
+		switch (type) {
+			case LONG:
+			case TIMESTAMP:
+				long previous = 0;
+				for (int r = 0; r < rowCount; r++) {
+					if (column[r] != null) {
+						long value = ((Number) column[r]).longValue();
+						long delta = value - previous;
+						writeVarint((delta << 1) ^ (delta >> 63));
+						previous = value;
+					}
+				}
+				break;
+			case BOOLEAN:
+				writeBits(column, Boolean.TRUE);
+				break;
+			case DICTIONARY:
+				writeDictionaryColumn(dictionaries.get(index), column);
+				break;
+			default:
+				for (int r = 0; r < rowCount; r++) {
+					if (column[r] != null) {
+						writeString(String.valueOf(column[r]));
+					}
+				}
+		}
+	}
+
+	private void writeDictionaryColumn(Map<String, Integer> dictionary, Object[] column) throws IOException {
+		//index of the entry plus one, 0 for a value written as a plain string once the dictionary is full
+		int[] ids = new int[rowCount];
+		String[] added = new String[rowCount];
+		int addedCount = 0;
+		for (int r = 0; r < rowCount; r++) {
+			if (column[r] != null) {
+				String value = String.valueOf(column[r]);
+				Integer id = dictionary.get(value);
+				if (id == null && dictionary.size() < MAX_DICTIONARY_SIZE) {
+					id = dictionary.size();
+					dictionary.put(value, id);
+					added[addedCount++] = value;
+				}
+				ids[r] = id != null ? id + 1 : 0;
+			}
+		}
+		writeVarint(addedCount);
+		for (int i = 0; i < addedCount; i++) {
+			writeString(added[i]);
+		}
+		for (int r = 0; r < rowCount; r++) {
+			if (column[r] != null) {
+				writeVarint(ids[r]);
+				if (ids[r] == 0) {
+					writeString(String.valueOf(column[r]));
+				}
+			}
+		}
+	}
+
+	//with a null expected value, one bit per row telling whether it has a value; otherwise one bit per present value
+	private void writeBits(Object[] column, Object expected) throws IOException {
+		int bits = 0;
+		int count = 0;
+		for (int r = 0; r < rowCount; r++) {
+			if (expected != null && column[r] == null) {
+				continue;
+			}
+			if (expected == null ? column[r] != null : expected.equals(column[r])) {
+				bits |= 1 << count;
+			}
+			if (++count == 8) {
+				out.writeByte(bits);
+				bits = 0;
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			out.writeByte(bits);
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		out.write(bytes);
+	}
+
+	private void writeVarint(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+}
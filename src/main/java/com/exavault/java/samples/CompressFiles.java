@@ -7,14 +7,14 @@ import com.exavault.client.model.CompressFilesRequestBody;
 import com.exavault.client.model.ResourceResponse;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
 import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
 import static com.exavault.java.samples.Utils.BASE_PATH;
-import static com.exavault.java.samples.Utils.getAllLocalFiles;
 import static com.exavault.java.samples.Utils.customErrorResponse;
-import static com.exavault.java.samples.Utils.uploadFile;
+import static com.exavault.java.samples.Utils.getLocalFolder;
 
 /**
  * To use this sample, add your credentials to a file named {@code credentials.properties} which is located in {@code resources} folder at root level of your project.
@@ -45,6 +45,8 @@ import static com.exavault.java.samples.Utils.uploadFile;
  * upload into a new zip file in the folder<p>
  * <p>An example output of this program would look like this:</p>
  * <pre>
+ * Uploaded /Quick_1604022300/dog.jpg
+ * Uploaded /Quick_1604022300/closeup_dog.jpg
  * Uploaded files at:  sample_compress_1604022300
  * Created archive at /compress-sample.zip
  * </pre>
@@ -67,19 +69,15 @@ public class CompressFiles {
 
 	//upload routine
 	private static void upload() {
+		File folder = getLocalFolder();
+		if (folder == null) {
+			return;
+		}
 		try {
-			File[] files = getAllLocalFiles();
-			if (files != null && files.length > 0) {
-				for (File file : files) {
-					//upload only files, no directories
-					if (file.isFile()) {
-						uploadFile(resourcesApi, credential, file);
-					}
-				}
-			}
-		} catch (ApiException e) {
-			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
-			System.err.println("Exception when calling ResourcesApi#uploadFile => \n" + Utils.customErrorResponse(e));
+			//upload the whole local folder tree below BASE_PATH
+			new UploadEngine(resourcesApi, credential).uploadTree(folder.toPath(), BASE_PATH);
+		} catch (IOException e) {
+			System.err.println("Exception when reading local folder => \n" + customErrorResponse(e));
 		}
 	}
 
@@ -6,6 +6,12 @@ import com.exavault.client.api.ResourcesApi;
 import com.exavault.client.api.SharesApi;
 import com.exavault.client.model.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -51,10 +57,16 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * Created shared folder [HASH] for /sample_share_[ID]
  * Password to access the folder is [PASSWORD]
  * </pre>
+ * <p>
+ * Pass {@code --batch=folders.txt} to share every folder listed in the file instead, one path per line, see
+ * {@link ShareProvisioner}. Missing parent folders are created too. If anything fails, what the batch created is
+ * removed again, unless {@code --keep-partial} is passed.
  */
 public class CreateShare {
 	private static final String SAMPLE_SHARE = "/sample_share_";
 	private static final String PASSWORD = "testpAssword8";
+	private static final String BATCH = "--batch=";
+	private static final String KEEP_PARTIAL = "--keep-partial";
 	private static Credential credential;
 	private static ResourcesApi resourcesApi;
 	private static SharesApi sharesApi;
@@ -65,6 +77,19 @@ public class CreateShare {
 		credential = ApiClientHelper.getCredential();
 		resourcesApi = new ResourcesApi(apiClient);
 		sharesApi = new SharesApi(apiClient);
+		String batch = null;
+		boolean cleanup = true;
+		for (String arg : args) {
+			if (arg.startsWith(BATCH)) {
+				batch = arg.substring(BATCH.length());
+			} else if (KEEP_PARTIAL.equals(arg)) {
+				cleanup = false;
+			}
+		}
+		if (batch != null) {
+			createShares(Paths.get(batch), cleanup);
+			return;
+		}
 		Random random = new Random();
 		long folderId = createAndGetFolderId(Math.abs(random.nextInt()));
 		if (folderId != -1) {
@@ -81,12 +106,12 @@ public class CreateShare {
 	 * See <a href="https://www.exavault.com/developer/api-docs/v2#operation/addFolder">addFolder</a>
 	 * for the request requestBody schema
 	 *
-	 * @return
+	 * @return id of the new folder, -1 if it could not be created
 	 */
 	private static long createAndGetFolderId(int random) {
 		AddFolderRequestBody requestBody = new AddFolderRequestBody();
 		requestBody.setPath(SAMPLE_SHARE + random);
-		long folderId = 0;
+		long folderId = -1;
 		try {
 			/* See <a href="https://www.exavault.com/developer/api-docs/v2#operation/addFolder">addFolder</a>
 			 *  for the details of this method
@@ -96,8 +121,6 @@ public class CreateShare {
 			Resource data = result.getData();
 			if (data != null) {
 				folderId = data.getId();
-			} else {
-				folderId = -1; //set to invalid id to check further
 			}
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
@@ -106,6 +129,37 @@ public class CreateShare {
 		return folderId;
 	}
 
+	/**
+	 * Create a shared folder for every path listed in a file, blank lines and lines starting with # are ignored
+	 *
+	 * @param file    the list of folders
+	 * @param cleanup true to remove what the batch created if anything failed
+	 */
+	private static void createShares(Path file, boolean cleanup) {
+		List<String> paths = new ArrayList<>();
+		try {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+					paths.add(line.trim());
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Exception when reading " + file + " => \n" + customErrorResponse(e));
+			return;
+		}
+		ShareProvisioner provisioner = new ShareProvisioner(resourcesApi, sharesApi, credential);
+		ShareProvisioner.Report report = provisioner.provision(paths, new ShareProvisioner.ShareRequestFactory() {
+			@Override
+			public AddShareRequestBody newRequest(String path, long folderId) {
+				return getRequestBody(folderId, path.substring(path.lastIndexOf('/') + 1));
+			}
+		}, cleanup);
+		report.print();
+		System.out.println(report.getFailures() == 0
+			? "Shared " + paths.size() + " folders, password to access them is " + PASSWORD
+			: report.getFailures() + " folders or shares failed" + (cleanup ? ", the batch was removed" : ""));
+	}
+
 	/**
 	 * Create a sharable folder
 	 *
@@ -115,7 +169,7 @@ public class CreateShare {
 		/* See <a href="https://www.exavault.com/developer/api-docs/v2#operation/addShare">addShare</a>
 		 *  for the requestBody schema
 		 */
-		AddShareRequestBody requestBody = getRequestBody(folderId);
+		AddShareRequestBody requestBody = getRequestBody(folderId, "notification-sample");
 		try {
 			/* See <a href="https://www.exavault.com/developer/api-docs/v2#operation/addShare">addShare</a>
 			 *  for the response schema
@@ -158,11 +212,11 @@ public class CreateShare {
 	 * 	<li>We could also have used the full path to the folder</li>
 	 * </ul>
 	 */
-	private static AddShareRequestBody getRequestBody(long folderId) {
+	private static AddShareRequestBody getRequestBody(long folderId, String name) {
 		AddShareRequestBody requestBody = new AddShareRequestBody();
 		List<String> resources = Collections.singletonList("id:" + folderId);
 		requestBody.setType(AddShareRequestBody.TypeEnum.SHARED_FOLDER);
-		requestBody.setName("notification-sample");
+		requestBody.setName(name);
 		requestBody.setResources(resources);
 		requestBody.setPassword(PASSWORD);
 		AccessMode accessMode = new AccessMode();
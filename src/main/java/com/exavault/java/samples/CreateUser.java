@@ -8,6 +8,9 @@ import com.exavault.client.model.User;
 import com.exavault.client.model.UserResponse;
 import com.exavault.client.model.UsersPermissions;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
 import java.util.UUID;
 
@@ -38,25 +41,38 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * This example uses the {@link com.exavault.client.api.UsersApi} to create a new user with a home directory
  * <p>
  * We are demonstrating the use of the UsersApi, which is used to create, update and remove users in your account.
+ * <p>
+ * Pass {@code --import=users.csv} (or a JSON file) to add every user listed in the file instead, see {@link UserProvisioner}.
+ * The file needs the {@code username}, {@code email}, {@code password} and {@code home_resource} columns, and may have
+ * {@code nickname}, {@code role}, {@code time_zone}, {@code expiration}, {@code locked}, {@code welcome_email} and
+ * {@code permissions}. Running it again only processes the rows which did not succeed.
  * <p>An example output of this program would look like this:</p>
  * <pre>
  * Created new user xyz-1UXLeMi9t35X0ggI8NfYq-1604022293 as ID #123456
  * </pre>
  */
 public class CreateUser {
+	private static final String IMPORT = "--import=";
+
 	public static void main(String[] args) {
 		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
 		ApiClient apiClient = ApiClientHelper.initApiClient();
-		Credential credential = ApiClientHelper.getCredential();
+		final Credential credential = ApiClientHelper.getCredential();
+		for (String arg : args) {
+			if (arg.startsWith(IMPORT)) {
+				importUsers(apiClient, credential, Paths.get(arg.substring(IMPORT.length())));
+				return;
+			}
+		}
 		// random value will allow to create unique user in the account
 		UUID uuid = UUID.randomUUID();
 		Random rand = new Random();
-		UsersApi usersApi = new UsersApi(apiClient);
+		final UsersApi usersApi = new UsersApi(apiClient);
 		/*
 		 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/addUser">addUser</a>
 		 * for the request requestBody schema
 		 */
-		AddUserRequestBody requestBody = new AddUserRequestBody();
+		final AddUserRequestBody requestBody = new AddUserRequestBody();
 		requestBody.setEmail("testuser@example.com");
 		requestBody.setPassword("testpaSsword8");
 		requestBody.setHomeResource("/");
@@ -75,7 +91,13 @@ public class CreateUser {
 			 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/addUser">addUser</a>
 			 * for the response requestBody schema
 			 */
-			UserResponse result = usersApi.addUser(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+			//adding a user is not idempotent, it is only retried when the server throttled the request
+			UserResponse result = RetryPolicy.forAccount(credential).execute("addUser", false, new RetryPolicy.ApiCall<UserResponse>() {
+				@Override
+				public UserResponse call() throws ApiException {
+					return usersApi.addUser(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+				}
+			});
 			//print out the response
 			if (result != null) {
 				if (result.getResponseStatus() == RESPONSE_CODE_201) {
@@ -90,4 +112,22 @@ public class CreateUser {
 			System.err.println("Exception when calling UsersApi#addUser => \n" + Utils.customErrorResponse(e));
 		}
 	}
+
+	/*
+	 * Add every user of a CSV or JSON file, several at a time
+	 * The outcome of each row goes to a journal, so running it again only processes the rows which did not succeed
+	 */
+	private static void importUsers(ApiClient apiClient, Credential credential, Path input) {
+		try (UserImportReader reader = UserImportReader.open(input);
+		     ProvisioningJournal journal = ProvisioningJournal.open(credential, input)) {
+			UserProvisioner.Summary summary = new UserProvisioner(apiClient, credential).provision(reader, journal);
+			System.out.println("Imported " + input + ": " + summary);
+			System.out.println("Row results are in " + journal.getFile().toAbsolutePath());
+		} catch (ApiException e) {
+			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+			System.err.println("Exception when calling UsersApi#listUsers => \n" + Utils.customErrorResponse(e));
+		} catch (IOException e) {
+			System.err.println("Exception when reading " + input + " => \n" + customErrorResponse(e));
+		}
+	}
 }
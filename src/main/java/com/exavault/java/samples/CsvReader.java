@@ -0,0 +1,92 @@
+package com.exavault.java.samples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV as described in <a href="https://tools.ietf.org/html/rfc4180">RFC 4180</a>, one record at a time.
+ * <p>
+ * Quoted fields may hold commas, doubled double quotes and line breaks. Records may end with CRLF or a bare LF.
+ * Only the current record is held in memory, so files of any length can be read. It is the reading counterpart of
+ * {@link CsvWriter}.
+ */
+public class CsvReader implements Closeable {
+	private final Reader in;
+	private int pushedBack = -2;
+
+	/**
+	 * @param in reader of the CSV text, buffered by the caller
+	 */
+	public CsvReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next record
+	 *
+	 * @return the fields of the record, null at the end of the input
+	 * @throws IOException the input could not be read or a quoted field is not closed
+	 */
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		if (c == -1) {
+			return null;
+		}
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("Quoted field not closed at the end of the input");
+				}
+				if (c == '"') {
+					int next = read();
+					if (next == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						c = next;
+						continue;
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r') {
+					int next = read();
+					if (next != '\n') {
+						pushedBack = next;
+					}
+				}
+				fields.add(field.toString());
+				return fields;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	private int read() throws IOException {
+		if (pushedBack != -2) {
+			int c = pushedBack;
+			pushedBack = -2;
+			return c;
+		}
+		return in.read();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,76 @@
+package com.exavault.java.samples;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV as described in <a href="https://tools.ietf.org/html/rfc4180">RFC 4180</a>, one row at a time.
+ * <p>
+ * Fields holding a comma, a double quote or a line break are enclosed in double quotes, with inner double quotes
+ * doubled, and rows end with CRLF. Rows go straight to a buffered writer, so memory use does not depend on the
+ * number of rows. {@link ExportFormat#open} gives a writer for a file, with the header row already written.
+ */
+public class CsvWriter implements ExportSink, Flushable {
+	private static final String LINE_END = "\r\n";
+	private final Writer out;
+
+	public CsvWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write one row, null values are written as empty fields
+	 *
+	 * @param values values of the fields, written with {@link String#valueOf(Object)}
+	 * @throws IOException the row could not be written
+	 */
+	@Override
+	public void write(Object... values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			if (values[i] != null) {
+				writeField(String.valueOf(values[i]));
+			}
+		}
+		out.write(LINE_END);
+	}
+
+	private void writeField(String value) throws IOException {
+		if (!needsQuotes(value)) {
+			out.write(value);
+			return;
+		}
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				out.write('"');
+			}
+			out.write(c);
+		}
+		out.write('"');
+	}
+
+	private static boolean needsQuotes(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
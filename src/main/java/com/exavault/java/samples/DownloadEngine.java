@@ -0,0 +1,128 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceAttributes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Downloads files one request per file from a bounded pool of workers, keeping the remote folder layout locally.
+ * <p>
+ * A single {@code download} call for many files makes the server build one zip, which then arrives as one
+ * serial stream. For a handful of medium or large files, several parallel requests use the link much better.
+ * For many small files the zip is still cheaper, as it saves one request per file.
+ * {@link #isWorthFanningOut(int, long)} picks between the two.
+ * <p>
+ * Like the {@link UploadEngine}, the work queue is bounded and the submitting thread downloads the next file
+ * itself when it is full. The pool comes from {@link BulkExecutors}, which can run the downloads on virtual
+ * threads instead.
+ */
+public class DownloadEngine {
+	//below this average file size, the per request overhead outweighs the parallelism and a zip is used
+	public static final long MIN_AVERAGE_SIZE_FOR_FAN_OUT = 512L * 1024;
+	private final StreamingDownload streamingDownload;
+	private final int workers;
+	private final int queueCapacity;
+
+	public DownloadEngine(ResourcesApi resourcesApi, Credential credential) {
+		this(resourcesApi, credential, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param resourcesApi  Resource API to be used
+	 * @param credential    Credentials
+	 * @param workers       number of download threads
+	 * @param queueCapacity number of files allowed to wait for a free worker
+	 */
+	public DownloadEngine(ResourcesApi resourcesApi, Credential credential, int workers, int queueCapacity) {
+		if (workers < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("workers and queueCapacity must be positive");
+		}
+		this.streamingDownload = new StreamingDownload(resourcesApi, credential);
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Whether downloading files one by one in parallel should beat a single zip of all of them
+	 *
+	 * @param fileCount  number of files
+	 * @param totalBytes total size of the files
+	 * @return true for parallel per file downloads, false for a zip bundle
+	 */
+	public static boolean isWorthFanningOut(int fileCount, long totalBytes) {
+		return fileCount > 1 && totalBytes / fileCount >= MIN_AVERAGE_SIZE_FOR_FAN_OUT;
+	}
+
+	/**
+	 * Download every file of {@code resources} below {@code localRoot}, keeping their path relative to {@code remoteBase}
+	 *
+	 * @param resources  files to download, folders are ignored
+	 * @param remoteBase remote folder the local layout starts from
+	 * @param localRoot  local destination folder
+	 * @return the transfer statistics of this run
+	 */
+	public TransferStats downloadAll(Iterable<Resource> resources, String remoteBase, Path localRoot) {
+		TransferStats stats = new TransferStats();
+		ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		try {
+			for (Resource resource : resources) {
+				ResourceAttributes attributes = resource.getAttributes();
+				if (attributes == null || attributes.getType() == ResourceAttributes.TypeEnum.DIR) {
+					continue;
+				}
+				Path destination = localPath(localRoot, remoteBase, attributes.getPath());
+				if (destination == null) {
+					System.err.println("Skipping " + attributes.getPath() + ", it is outside of " + remoteBase);
+					stats.recordFailure();
+				} else {
+					executor.execute(newDownloadTask(resource.getId(), attributes.getPath(), destination, stats));
+				}
+			}
+		} finally {
+			BulkExecutors.awaitCompletion(executor);
+			stats.finish();
+		}
+		return stats;
+	}
+
+	//build the task downloading a single file
+	private Runnable newDownloadTask(final Long id, final String path, final Path destination, final TransferStats stats) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Files.createDirectories(destination.getParent());
+					long size = streamingDownload.download(Collections.singletonList("id:" + id),
+						destination.getFileName().toString(), destination);
+					stats.recordSuccess(size);
+					System.out.println("Downloaded " + path);
+				} catch (ApiException e) {
+					stats.recordFailure();
+					// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+					System.err.println("Exception when calling ResourcesApi#download for " + path + " => \n" + Utils.customErrorResponse(e));
+				} catch (IOException e) {
+					stats.recordFailure();
+					System.err.println("Exception when writing " + destination + " => \n" + Utils.customErrorResponse(e));
+				}
+			}
+		};
+	}
+
+	//local destination of a remote file, or null if the remote path is not below the remote base
+	static Path localPath(Path localRoot, String remoteBase, String remotePath) {
+		String prefix = remoteBase.endsWith("/") ? remoteBase : remoteBase + "/";
+		if (remotePath == null || !remotePath.startsWith(prefix)) {
+			return null;
+		}
+		Path root = localRoot.toAbsolutePath().normalize();
+		Path destination = root.resolve(remotePath.substring(prefix.length())).normalize();
+		return destination.startsWith(root) && !destination.equals(root) ? destination : null;
+	}
+}
@@ -4,11 +4,9 @@ import com.exavault.client.ApiClient;
 import com.exavault.client.ApiException;
 import com.exavault.client.api.ResourcesApi;
 import com.exavault.client.model.Resource;
-import com.exavault.client.model.ResourceCollectionResponse;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +46,10 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * which contains a folder tree containing many samples.
  * If you have renamed, deleted or moved this folder, this demo script will not work.
  * </p>
+ * <p>
+ * All matching files are listed, page by page, and downloaded in batches while the next page is being listed.
+ * A batch of small files is downloaded as a single zip file, larger files are downloaded in parallel into a folder.
+ * </p>
  * <pre>
  * Found 3 CSV files to download
  * /Sample Files and Folders/Sample Folder Structures/Clients/Alpha/sample data.csv
@@ -62,6 +64,8 @@ public class DownloadFiles {
 	private static final String PREFIX = "download-";
 	private static final String ZIP = ".zip";
 	private static final String CSV = ".csv";
+	//number of files requested in one download call
+	private static final int DOWNLOAD_BATCH = 500;
 	private static Credential credential;
 	private static ResourcesApi resourcesApi;
 	private static final Random result = new Random();
@@ -71,11 +75,68 @@ public class DownloadFiles {
 		ApiClient apiClient = ApiClientHelper.initApiClient();
 		credential = ApiClientHelper.getCredential();
 		resourcesApi = new ResourcesApi(apiClient);
-		List<String> allResourceIds = getAllResourceIds();
-		if (allResourceIds.size() == 0) {
-			System.out.println("Found no files to download");
+		try {
+			ResourcePaginator csvFiles = listCsvFiles();
+			int total = csvFiles.getTotalResults();
+			if (total <= 0) {
+				System.out.println("Found no files to download");
+			} else {
+				System.out.println("Found " + total + " CSV files to download");
+				downloadInBatches(csvFiles);
+			}
+		} catch (ResourcePaginator.PageException e) {
+			System.err.println("Exception when calling ResourcesApi#listResources => \n" + Utils.customErrorResponse(e.getApiException()));
+		}
+	}
+
+	/**
+	 * Download the listed files in batches of {@code DOWNLOAD_BATCH}
+	 * <p>
+	 * The paginator fetches the next page of the listing in the background, so while a batch is being
+	 * downloaded the following resources are already being listed
+	 *
+	 * @param csvFiles all matching resources
+	 */
+	private static void downloadInBatches(ResourcePaginator csvFiles) {
+		List<Resource> batch = new ArrayList<>();
+		while (csvFiles.hasNext()) {
+			Resource item = csvFiles.next();
+			batch.add(item);
+			System.out.println(item.getAttributes().getPath());
+			if (batch.size() == DOWNLOAD_BATCH) {
+				downloadBatch(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			downloadBatch(batch);
+		}
+	}
+
+	/**
+	 * Many small files are cheaper to get as one zip built by the server, while medium and large files
+	 * download faster one by one in parallel. The DownloadEngine decides from the number and total size of the files
+	 *
+	 * @param batch resources to download
+	 */
+	private static void downloadBatch(List<Resource> batch) {
+		long totalSize = 0;
+		for (Resource item : batch) {
+			Long size = item.getAttributes().getSize();
+			totalSize += size != null ? size : 0;
+		}
+		if (DownloadEngine.isWorthFanningOut(batch.size(), totalSize)) {
+			//the files are written below a new local folder, keeping their folders relative to SAMPLE_FILES_AND_FOLDERS
+			Path localRoot = Paths.get(PREFIX + Math.abs(result.nextInt()));
+			TransferStats stats = new DownloadEngine(resourcesApi, credential).downloadAll(batch, SAMPLE_FILES_AND_FOLDERS, localRoot);
+			System.out.println("Downloaded " + stats + " to " + localRoot.toAbsolutePath());
 		} else {
-			downloadContent(allResourceIds);
+			List<String> resourceIds = new ArrayList<>();
+			for (Resource item : batch) {
+				// it will be used to download only these upload
+				resourceIds.add("id:" + item.getId());
+			}
+			downloadContent(resourceIds);
 		}
 	}
 
@@ -86,6 +147,8 @@ public class DownloadFiles {
 	 * The body of the result is the binary content of our file(s),
 	 * We write that content into a single file, named with .zip if there were multiple files
 	 * downloaded or just named .csv if not (since we were storing csvs)
+	 * <p>
+	 * By default downloaded file will be written to your project's main folder location
 	 *
 	 * @param allResourceIds all resources
 	 */
@@ -100,9 +163,13 @@ public class DownloadFiles {
 			} else {
 				downloadName = PREFIX + random + CSV; //only one file
 			}
-			File fileContent = resourcesApi.download(credential.getEvApiKey(), credential.getEvAccessToken(),
-				allResourceIds, downloadName);
-			saveToLocalFile(fileContent, downloadName);
+			/*
+			 * The response is streamed straight into the destination file, instead of being saved to a
+			 * temporary file by ResourcesApi#download and copied afterwards
+			 */
+			Path destination = Paths.get(downloadName);
+			new StreamingDownload(resourcesApi, credential).download(allResourceIds, downloadName, destination);
+			System.out.println("File(s) downloaded to " + destination.toAbsolutePath());
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
 			System.err.println("Exception when calling ResourcesApi#download => \n" + Utils.customErrorResponse(e));
@@ -112,61 +179,35 @@ public class DownloadFiles {
 		}
 	}
 
-	/**
-	 * copy the downloaded file to your local machine
-	 * By default downloaded file will be copied to your project's main folder location
-	 */
-	private static void saveToLocalFile(File fileContent, String downloadName) throws IOException {
-		Files.copy(Paths.get(fileContent.getAbsolutePath()), Paths.get(downloadName));
-		System.out.println("File(s) downloaded to " + System.getProperty("user.dir") + File.separator + downloadName);
-	}
-
 	/**
 	 * Now  we can download only .csv upload
 	 * <p>
 	 * We are using name param for searching only .csv upload
 	 *
-	 * @return list of resource id's with only .csv
+	 * @return lazy iterator over all resources with only .csv, across as many pages as needed
 	 */
-	private static List<String> getAllResourceIds() {
+	private static ResourcePaginator listCsvFiles() {
 		/*
 		 * Endpoint support multiple sort fields by allowing array of sort params. Sort fields should be applied in the order specified
 		 * The sort order for each sort field is ascending unless it is prefixed with a minus (“-“), in which case it will be descending
 		 */
 		final String sort = "name";
-		//Determines which item to start on for pagination. Use zero (0) to start at the beginning of the list
-		final int offset = 0;
 		/*
 		 * The number of upload to limit the result. Cannot be set higher than 100
-		 * If you have more than one hundred upload in your directory,
-		 * make multiple calls to **getResourceList**, incrementing the **offset** parameter, above
+		 * If you have more than one hundred upload in your directory, multiple calls to **listResources** are needed,
+		 * incrementing the **offset** parameter. The ResourcePaginator makes these calls for us
 		 */
-		final int limit = 50;
+		final int limit = ResourcePaginator.MAX_PAGE_SIZE;
 		//Optional param to get only folder resources
 		String type = null;
 		//Comma separated list of relationships to include in response. Possible values are `share`, `notification`, `directFile`, `parentNode`.
 		String include = null;
 		//Text to match resource names
 		final String name = "*.csv";
-		List<String> resources = new ArrayList<>();
-		try {
-			/*
-			 * See <a href="https://www.exavault.com/developer/api-docs/V2#operation/listResources">listResources</a>
-			 * for the response schema
-			 */
-			ResourceCollectionResponse result = resourcesApi.listResources(credential.getEvApiKey(), credential.getEvAccessToken(),
-				SAMPLE_FILES_AND_FOLDERS, sort, offset, limit, type, name, include);
-			System.out.println("Found " + result.getReturnedResults() + " CSV files to download");
-			//get the data variable of the ResourceCollectionResponse response object
-			List<Resource> data = result.getData();
-			// it will be used to download only these upload
-			for (Resource item : data) {
-				resources.add("id:" + item.getId());
-				System.out.println(item.getAttributes().getPath());
-			}
-		} catch (ApiException e) {
-			System.err.println("Exception when calling ResourcesApi#listResources => \n" + Utils.customErrorResponse(e));
-		}
-		return resources;
+		/*
+		 * See <a href="https://www.exavault.com/developer/api-docs/V2#operation/listResources">listResources</a>
+		 * for the response schema
+		 */
+		return new ResourcePaginator(resourcesApi, credential, SAMPLE_FILES_AND_FOLDERS, sort, type, name, include, limit);
 	}
 }
@@ -0,0 +1,72 @@
+package com.exavault.java.samples;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExaVault API Code Sample - Bulk executor benchmark
+ * <p>
+ * Compares the executors of {@link BulkExecutors} on I/O bound work: every task blocks for a fixed latency, like
+ * a transfer waiting on the network, without touching your account. Both executors are built the way the bulk
+ * samples build theirs, with the default workers and queue capacity of the engines, so the platform pool runs
+ * {@value BulkExecutors#DEFAULT_WORKERS} tasks at once and virtual threads run as many as
+ * {@code -Dexavault.virtual.concurrency} allows. Virtual threads are only measured when the JVM is Java 21 or later.
+ * <p>
+ * Usage: {@code ExecutorBenchmark [--tasks=N] [--latency=MILLIS]}. As in the samples, the submitting thread runs
+ * tasks itself whenever the platform pool is full, so it counts as one more worker there.
+ * <p>An example output of this program on Java 17, where only platform threads can be measured, would look like this:</p>
+ * <pre>
+ * 2000 tasks blocking 50 ms each
+ * executor    concurrency     seconds     tasks/s
+ * platform              8       11.25      177.84
+ * Virtual threads need Java 21 or later, run on a recent JDK
+ * </pre>
+ */
+public class ExecutorBenchmark {
+	private static final String TASKS = "--tasks=";
+	private static final String LATENCY = "--latency=";
+
+	public static void main(String[] args) {
+		int tasks = 2000;
+		long latencyMillis = 50;
+		for (String arg : args) {
+			if (arg.startsWith(TASKS)) {
+				tasks = Integer.parseInt(arg.substring(TASKS.length()));
+			} else if (arg.startsWith(LATENCY)) {
+				latencyMillis = Long.parseLong(arg.substring(LATENCY.length()));
+			}
+		}
+		System.out.println(tasks + " tasks blocking " + latencyMillis + " ms each");
+		System.out.printf("%-10s %12s %11s %11s%n", "executor", "concurrency", "seconds", "tasks/s");
+		report(BulkExecutors.PLATFORM, BulkExecutors.DEFAULT_WORKERS, tasks, latencyMillis);
+		if (BulkExecutors.isVirtualThreadsAvailable()) {
+			report(BulkExecutors.VIRTUAL, BulkExecutors.getVirtualConcurrency(), tasks, latencyMillis);
+		} else {
+			System.out.println("Virtual threads need Java 21 or later, run on a recent JDK");
+		}
+	}
+
+	//run the tasks on an executor of the given kind and print the throughput, concurrency is the number of tasks running at once
+	private static void report(String kind, int concurrency, int tasks, final long latencyMillis) {
+		ExecutorService executor = BulkExecutors.newExecutor(kind, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY);
+		final AtomicLong completed = new AtomicLong();
+		long start = System.nanoTime();
+		for (int i = 0; i < tasks; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						//stands for a blocking API call
+						Thread.sleep(latencyMillis);
+						completed.incrementAndGet();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		BulkExecutors.awaitCompletion(executor);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%-10s %12d %11.2f %11.2f%n", kind, concurrency, seconds, completed.get() / seconds);
+	}
+}
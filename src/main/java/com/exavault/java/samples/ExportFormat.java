@@ -0,0 +1,92 @@
+package com.exavault.java.samples;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formats the user and activity samples can export to.
+ * <ul>
+ * 	<li>{@code csv}: RFC 4180 CSV with a header row, see {@link CsvWriter}</li>
+ * 	<li>{@code ndjson}: one JSON object per line, see {@link NdjsonSink}</li>
+ * 	<li>{@code columnar}: compact binary row groups stored column by column, see {@link ColumnarSink}, read back with {@link ColumnarReader}</li>
+ * </ul>
+ */
+public enum ExportFormat {
+	CSV("csv"),
+	NDJSON("ndjson"),
+	COLUMNAR("evcol");
+
+	//size of the write buffers, in bytes
+	static final int BUFFER_SIZE = 64 * 1024;
+	private static final String GZ = ".gz";
+	private final String extension;
+
+	ExportFormat(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Format named on the command line
+	 *
+	 * @param name name of the format, case insensitive
+	 * @return the format
+	 * @throws IllegalArgumentException the name is not a format
+	 */
+	public static ExportFormat parse(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Name of the export file for this format
+	 *
+	 * @param baseName name of the file without extension
+	 * @param gzip     true if the file is gzip compressed
+	 * @return the file name
+	 */
+	public String fileName(String baseName, boolean gzip) {
+		return baseName + "." + extension + (gzip ? GZ : "");
+	}
+
+	/**
+	 * Open a sink writing {@code file}, replacing it if it exists
+	 *
+	 * @param file   file to write
+	 * @param schema columns of the rows
+	 * @param gzip   true to gzip the file
+	 * @return the sink, to be closed by the caller
+	 * @throws IOException the file could not be opened
+	 */
+	public ExportSink open(Path file, ExportSchema schema, boolean gzip) throws IOException {
+		OutputStream stream = Files.newOutputStream(file);
+		try {
+			if (gzip) {
+				stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+			}
+			switch (this) {
+				case CSV:
+					CsvWriter csv = new CsvWriter(newWriter(stream));
+					csv.write(schema.getNames().toArray());
+					return csv;
+				case NDJSON:
+					return new NdjsonSink(newWriter(stream), schema);
+				default:
+					return new ColumnarSink(new BufferedOutputStream(stream, BUFFER_SIZE), schema);
+			}
+		} catch (IOException e) {
+			stream.close();
+			throw e;
+		}
+	}
+
+	private static BufferedWriter newWriter(OutputStream stream) {
+		return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+}
@@ -0,0 +1,59 @@
+package com.exavault.java.samples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Names and types of the columns of an export, in order.
+ * <p>
+ * Text formats only use the names, the {@link ColumnarSink} also uses the types to pick an encoding.
+ */
+public class ExportSchema {
+	private final List<String> names = new ArrayList<>();
+	private final List<Type> types = new ArrayList<>();
+
+	/**
+	 * Type of a column
+	 */
+	public enum Type {
+		//free text
+		STRING,
+		//text with few distinct values, such as usernames or IP addresses
+		DICTIONARY,
+		//whole number
+		LONG,
+		BOOLEAN,
+		//date and time, an OffsetDateTime or a text in ISO 8601 or "yyyy-MM-dd HH:mm:ss" form
+		TIMESTAMP
+	}
+
+	/**
+	 * Append a column
+	 *
+	 * @param name name of the column
+	 * @param type type of the column
+	 * @return this schema
+	 */
+	public ExportSchema add(String name, Type type) {
+		names.add(name);
+		types.add(type);
+		return this;
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	public String getName(int column) {
+		return names.get(column);
+	}
+
+	public Type getType(int column) {
+		return types.get(column);
+	}
+
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+}
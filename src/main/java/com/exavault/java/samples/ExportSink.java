@@ -0,0 +1,20 @@
+package com.exavault.java.samples;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of exported rows, see {@link ExportFormat} for the available formats.
+ * <p>
+ * Rows hold one value per column of the {@link ExportSchema} the sink was opened with, null for a missing value.
+ * Rows are written as they come, so an export needs constant memory however many rows it has.
+ */
+public interface ExportSink extends Closeable {
+	/**
+	 * Write one row
+	 *
+	 * @param values values of the columns, in schema order
+	 * @throws IOException the row could not be written
+	 */
+	void write(Object... values) throws IOException;
+}
@@ -0,0 +1,68 @@
+package com.exavault.java.samples;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.RequestBody;
+import okio.BufferedSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request body streaming one byte range of a local file.
+ * <p>
+ * The range is read through a {@link FileChannel} with a small reusable buffer, so a chunk is never
+ * held in memory as a whole and the file is never copied to a temporary location.
+ */
+public class FileRangeRequestBody extends RequestBody {
+	private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private final File file;
+	private final long offset;
+	private final long length;
+
+	/**
+	 * @param file   file to read from
+	 * @param offset first byte of the range
+	 * @param length number of bytes in the range
+	 */
+	public FileRangeRequestBody(File file, long offset, long length) {
+		this.file = file;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public MediaType contentType() {
+		return OCTET_STREAM;
+	}
+
+	@Override
+	public long contentLength() {
+		return length;
+	}
+
+	@Override
+	public void writeTo(BufferedSink sink) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+			long position = offset;
+			long remaining = length;
+			while (remaining > 0) {
+				buffer.clear();
+				if (remaining < buffer.capacity()) {
+					buffer.limit((int) remaining);
+				}
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("Unexpected end of " + file + " at byte " + position);
+				}
+				sink.write(buffer.array(), 0, read);
+				position += read;
+				remaining -= read;
+			}
+		}
+	}
+}
@@ -4,13 +4,16 @@ import com.exavault.client.ApiClient;
 import com.exavault.client.ApiException;
 import com.exavault.client.api.ActivityApi;
 import com.exavault.client.model.SessionActivityEntry;
-import com.exavault.client.model.SessionActivityResponse;
+import com.exavault.client.model.SessionActivityEntryAttributes;
+import com.exavault.client.model.WebhooksActivityEntry;
+import com.exavault.client.model.WebhooksActivityEntryAttributes;
 import org.threeten.bp.OffsetDateTime;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.exavault.java.samples.Utils.customErrorResponse;
 
@@ -40,20 +43,79 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * We are demonstrating the use of the ActivityApi, which can be used to retrieve session and webhook logs
  * <p>An example output of this program would look like this:</p>
  * <pre>
- * 3 Users with failed logins:
- * Username                Count
- * =============================
- * dummy                       3
+ * Scanned 42 login entries
+ * 1 Users with failed logins:
+ * Username                  Count
+ * ===============================
+ * dummy                         3
+ *
+ * Addresses with the most failed logins:
+ * IP address                                    Count
+ * ===================================================
+ * 203.0.113.7                                       3
+ *
+ * Failed logins per period, out of 42 entries (3 failed):
+ * 2020-10-27T09:00Z                  3 / 17
+ * 2020-10-27T10:00Z                  0 / 25
  * </pre>
  */
 public class GetActivity {
 
-	private static final String FAILED = "failed";
+	//number of users and addresses listed in the report
+	private static final int TOP = 20;
+	private static final String EXPORT = "--export=";
+	private static final String GZIP = "--gzip";
+	private static final String FOLLOW = "--follow";
+	//default number of seconds between two polls in follow mode
+	private static final int DEFAULT_FOLLOW_SECONDS = 60;
+	//by default file will be saved in the parent folder of the project, with the extension of the format
+	static final String fileName = "session-logs";
+	//columns of the session log export, the types let the columnar format pick compact encodings
+	static final ExportSchema SESSION_SCHEMA = new ExportSchema()
+		.add("id", ExportSchema.Type.LONG)
+		.add("created", ExportSchema.Type.TIMESTAMP)
+		.add("username", ExportSchema.Type.DICTIONARY)
+		.add("ip_address", ExportSchema.Type.DICTIONARY)
+		.add("protocol", ExportSchema.Type.DICTIONARY)
+		.add("operation", ExportSchema.Type.DICTIONARY)
+		.add("status", ExportSchema.Type.DICTIONARY)
+		.add("file_name", ExportSchema.Type.STRING)
+		.add("file_source", ExportSchema.Type.STRING)
+		.add("bytes_transferred", ExportSchema.Type.LONG)
+		.add("duration", ExportSchema.Type.LONG)
+		//nearly one per entry, a dictionary would not shrink it
+		.add("session_id", ExportSchema.Type.STRING);
 
 	public static void main(String[] args) {
 		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
 		ApiClient apiClient = ApiClientHelper.initApiClient();
-		Credential credential = ApiClientHelper.getCredential();
+		final Credential credential = ApiClientHelper.getCredential();
+		//pass --export=csv, --export=ndjson or --export=columnar to also save the entries, and --gzip to compress the file
+		//pass --follow, or --follow=SECONDS, to keep printing new session and webhook activity instead
+		ExportFormat format = null;
+		boolean gzip = false;
+		int followSeconds = 0;
+		for (String arg : args) {
+			if (GZIP.equals(arg)) {
+				gzip = true;
+			} else if (arg.equals(FOLLOW)) {
+				followSeconds = DEFAULT_FOLLOW_SECONDS;
+			} else if (arg.startsWith(FOLLOW + "=")) {
+				try {
+					followSeconds = ActivityFollower.parseFollowSeconds(arg.substring(FOLLOW.length() + 1));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Invalid " + arg + ", pass a whole number of seconds such as " + FOLLOW + "=" + DEFAULT_FOLLOW_SECONDS);
+					return;
+				}
+			} else if (arg.startsWith(EXPORT)) {
+				try {
+					format = ExportFormat.parse(arg.substring(EXPORT.length()));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Unknown format " + arg.substring(EXPORT.length()) + ", valid formats are csv, ndjson and columnar");
+					return;
+				}
+			}
+		}
 		/*
 		 * The getSessionLogs method of the ActivityApi class will give us access activity logs for our account
 		 * <p>
@@ -63,10 +125,6 @@ public class GetActivity {
 
 		ActivityApi activityApi = new ActivityApi(apiClient);
 
-		//Offset of the records list
-		final int offset = 0;
-		//Limit of the records list
-		final int limit = 200;
 		//Username used for filtering a list
 		String userName = null;
 		//Path used to filter records
@@ -79,52 +137,123 @@ public class GetActivity {
 		OffsetDateTime startDate = OffsetDateTime.now().minusDays(1);
 		//End date of the filter data range
 		OffsetDateTime endDate = OffsetDateTime.now();
-		//Comma separated list sort params
-		final String sort = "-date";
-
-		try {
-			/*
-			 * Returns all login activity for the account for the past day
-			 * <p>
-			 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getSessionLogs">getSessionLogs</a>
-			 * for the details of the response object
-			 */
+		Path file = format != null ? Paths.get(format.fileName(fileName, gzip)) : null;
+		if (followSeconds > 0) {
+			follow(new ActivityFollower(activityApi, credential, null), credential, startDate, followSeconds);
+			return;
+		}
 
-			SessionActivityResponse result = activityApi.getSessionLogs(credential.getEvApiKey(), credential.getEvAccessToken(),
-				startDate, endDate, ipAddress, userName, path, type, offset, limit, sort);
-			getAndPrintFailedLogins(result);
+		/*
+		 * Reads all login activity for the account for the past day, not just the newest page of it
+		 * A busy window is split into time slices which are paged through in parallel
+		 * <p>
+		 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getSessionLogs">getSessionLogs</a>
+		 * for the details of the response object
+		 */
+		SessionLogScanner scanner = new SessionLogScanner(activityApi, credential, ipAddress, userName, path, type);
+		//aggregates the entries as they arrive, without keeping them
+		final SessionAggregator aggregator = new SessionAggregator(startDate, endDate);
+		try (final ExportSink sink = file != null ? format.open(file, SESSION_SCHEMA, gzip) : null) {
+			long scanned = scanner.scan(startDate, endDate, new SessionLogScanner.PageHandler() {
+				@Override
+				public void onPage(List<SessionActivityEntry> entries) throws IOException {
+					for (SessionActivityEntry entry : entries) {
+						aggregator.accept(entry);
+						if (sink != null) {
+							sink.write(toRow(entry));
+						}
+					}
+				}
+			});
+			System.out.println("Scanned " + scanned + " login entries");
+			if (file != null) {
+				System.out.println("Exported: " + scanned + " entries to " + file.toAbsolutePath());
+			}
+			aggregator.print(TOP);
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
 			System.err.println("Exception when calling ActivityApi#getSessionLogs => \n" + Utils.customErrorResponse(e));
+		} catch (IOException e) {
+			System.err.println("Exception when writing the session logs => \n" + customErrorResponse(e));
 		}
 	}
 
-	private static void getAndPrintFailedLogins(SessionActivityResponse result) {
-		//build a list of failed login attempts
-		List<SessionActivityEntry> failedLogins = new ArrayList<>();
-		List<SessionActivityEntry> data = result.getData();
-		for (SessionActivityEntry entry : data) {
-			if (entry.getAttributes().getStatus().equalsIgnoreCase(FAILED)) {
-				failedLogins.add(entry);
-			}
+	/*
+	 * Print the activity logged since the previous poll, every few seconds, until the program is stopped
+	 * The high-water mark of each log is kept on disk, so a restart carries on where the last run stopped
+	 */
+	private static void follow(ActivityFollower follower, Credential credential, OffsetDateTime since, int intervalSeconds) {
+		long initialMillis = since.toInstant().toEpochMilli();
+		ActivityCheckpoint sessions;
+		ActivityCheckpoint webhooks;
+		try {
+			sessions = ActivityCheckpoint.load(credential, ActivityFollower.SESSION_STREAM, initialMillis);
+			webhooks = ActivityCheckpoint.load(credential, ActivityFollower.WEBHOOK_STREAM, initialMillis);
+		} catch (IOException e) {
+			System.err.println("Exception when reading the activity checkpoints => \n" + customErrorResponse(e));
+			return;
 		}
-		Map<String, Integer> failedCounts = new HashMap<>();
-		//build a map to keep the counter of failed logins per user
-		for (SessionActivityEntry failedLogin : failedLogins) {
-			String username = failedLogin.getAttributes().getUsername();
-			if (failedCounts.containsKey(username)) {
-				failedCounts.put(username, failedCounts.get(username) + 1);
-			} else {
-				failedCounts.put(username, 1);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				follower.pollSessions(sessions, new ActivityFollower.EntryHandler<SessionActivityEntry>() {
+					@Override
+					public void onEntries(List<SessionActivityEntry> entries) {
+						for (SessionActivityEntry entry : entries) {
+							SessionActivityEntryAttributes attributes = entry.getAttributes();
+							if (attributes != null) {
+								System.out.println(attributes.getCreated() + " session " + attributes.getUsername() + " "
+									+ attributes.getIpAddress() + " " + attributes.getOperation() + " " + attributes.getStatus());
+							}
+						}
+					}
+				});
+				follower.pollWebhooks(webhooks, new ActivityFollower.EntryHandler<WebhooksActivityEntry>() {
+					@Override
+					public void onEntries(List<WebhooksActivityEntry> entries) {
+						for (WebhooksActivityEntry entry : entries) {
+							WebhooksActivityEntryAttributes attributes = entry.getAttributes();
+							if (attributes != null) {
+								System.out.println(attributes.getCreated() + " webhook " + attributes.getEvent() + " "
+									+ attributes.getEndpointUrl() + " " + attributes.getStatus() + " attempt " + attributes.getAttempt());
+							}
+						}
+					}
+				});
+			} catch (ApiException e) {
+				//keep following, the next poll starts from the same checkpoints
+				System.err.println("Exception when calling ActivityApi => \n" + Utils.customErrorResponse(e));
+			} catch (IOException e) {
+				System.err.println("Exception when saving the activity checkpoints => \n" + customErrorResponse(e));
+			}
+			try {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(intervalSeconds));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
 		}
-		//print the results on the console
-		System.out.println(failedLogins.size() + " Users with failed logins: ");
-		System.out.printf("%5s %25s", "Username", "Count");
-		System.out.println("");
-		System.out.println("==================================");
-		for (String userName : failedCounts.keySet()) {
-			System.out.format("%-20s %10d\n", userName, failedCounts.get(userName));
+	}
+
+	//values of the export columns of a session log entry
+	static Object[] toRow(SessionActivityEntry entry) {
+		SessionActivityEntryAttributes attributes = entry.getAttributes();
+		if (attributes == null) {
+			Object[] row = new Object[SESSION_SCHEMA.size()];
+			row[0] = entry.getId();
+			return row;
 		}
+		return new Object[]{
+			entry.getId(),
+			attributes.getCreated(),
+			attributes.getUsername(),
+			attributes.getIpAddress(),
+			attributes.getProtocol(),
+			attributes.getOperation(),
+			attributes.getStatus(),
+			attributes.getFileName(),
+			attributes.getFileSource(),
+			attributes.getBytesTransferred(),
+			attributes.getDuration(),
+			attributes.getSessionId()
+		};
 	}
 }
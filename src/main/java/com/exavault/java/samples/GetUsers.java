@@ -2,16 +2,13 @@ package com.exavault.java.samples;
 
 import com.exavault.client.ApiClient;
 import com.exavault.client.ApiException;
-import com.exavault.client.api.UsersApi;
 import com.exavault.client.model.User;
 import com.exavault.client.model.UserAttributes;
-import com.exavault.client.model.UserCollectionResponse;
 import com.exavault.client.model.UserPermissions;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 import static com.exavault.java.samples.Utils.customErrorResponse;
@@ -46,15 +43,40 @@ import static com.exavault.java.samples.Utils.customErrorResponse;
  * </pre>
  */
 public class GetUsers {
-	private static final String COMMA = ",";
-	//by default file will be saved in the parent folder of the project
-	static final String fileName = "users.csv";
+	private static final String GZIP = "--gzip";
+	private static final String FORMAT = "--format=";
+	//columns of the export, the types let the columnar format pick compact encodings
+	static final ExportSchema USER_SCHEMA = new ExportSchema()
+		.add("id", ExportSchema.Type.LONG)
+		//unique per user
+		.add("username", ExportSchema.Type.STRING)
+		.add("email", ExportSchema.Type.STRING)
+		.add("nickname", ExportSchema.Type.STRING)
+		.add("home_folder", ExportSchema.Type.STRING)
+		.add("role", ExportSchema.Type.DICTIONARY)
+		.add("time_zone", ExportSchema.Type.DICTIONARY)
+		.add("download", ExportSchema.Type.BOOLEAN)
+		.add("upload", ExportSchema.Type.BOOLEAN)
+		.add("modify", ExportSchema.Type.BOOLEAN)
+		.add("delete", ExportSchema.Type.BOOLEAN)
+		.add("list", ExportSchema.Type.BOOLEAN)
+		.add("change_password", ExportSchema.Type.BOOLEAN)
+		.add("share", ExportSchema.Type.BOOLEAN)
+		.add("send_notifications", ExportSchema.Type.BOOLEAN)
+		.add("view_form_data", ExportSchema.Type.BOOLEAN)
+		.add("delete_form_data", ExportSchema.Type.BOOLEAN)
+		.add("expiration", ExportSchema.Type.TIMESTAMP)
+		.add("accessed", ExportSchema.Type.TIMESTAMP)
+		.add("locked", ExportSchema.Type.BOOLEAN)
+		.add("created", ExportSchema.Type.TIMESTAMP)
+		.add("modified", ExportSchema.Type.TIMESTAMP);
+	//by default file will be saved in the parent folder of the project, with the extension of the format
+	static final String fileName = "users";
 
 	public static void main(String[] args) {
 		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
 		ApiClient apiClient = ApiClientHelper.initApiClient();
 		Credential credential = ApiClientHelper.getCredential();
-		UsersApi usersApi = new UsersApi(apiClient);
 
 		/*
 		 * Following parameters can be used to fetch the users:
@@ -74,108 +96,91 @@ public class GetUsers {
 		 *    in which case it will be descending.  Valid sort fields are: **nickname**, **username**, **email**, **homeDir** and **modified**
 		 */
 
-		//Number of users to return. Can be used for pagination
-		final int limit = 50;
 		//Comma separated list of relationships to include in response. Valid options are **homeResource** and **ownerAccount**
 		final String include = "ownerAccount";
-		// The list where we will store all users
-		int offset = 0; //default value
+		//pass --format=ndjson or --format=columnar for other formats than csv, and --gzip to compress the file
+		ExportFormat format = ExportFormat.CSV;
+		boolean gzip = false;
+		for (String arg : args) {
+			if (GZIP.equals(arg)) {
+				gzip = true;
+			} else if (arg.startsWith(FORMAT)) {
+				try {
+					format = ExportFormat.parse(arg.substring(FORMAT.length()));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Unknown format " + arg.substring(FORMAT.length()) + ", valid formats are csv, ndjson and columnar");
+					return;
+				}
+			}
+		}
+		Path file = Paths.get(format.fileName(fileName, gzip));
 
 		try {
 			/*
 			 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/listUsers">listUsers</a>
 			 * for the details of this method
-			 * By using Null for String and 0 for Integer type, means we are skipping applying those parameters as filters
-			 * (Refer to the table defined above for the usage of different filters)
-			 */
-			UserCollectionResponse response = usersApi.listUsers(credential.getEvApiKey(), credential.getEvAccessToken(), null, null,
-				null, null, null, null, null, offset, null, limit, include);
-			List<User> users = new ArrayList<>(response.getData());
-
-			/*
-			 * It is possible that amount of users in account is more than we specified in limit param so
-			 * we need to do as many calls as we need to get all users
+			 * The first page tells how many users the account has, the remaining pages are then
+			 * requested several at a time so that large accounts are listed completely and quickly
 			 */
-			if (response.getTotalResults() > response.getReturnedResults() + offset) {
-				offset = offset + limit;
-				response = usersApi.listUsers(credential.getEvApiKey(), credential.getEvAccessToken(), null,
-					null, null, null, null, null, null, offset, null, limit, include);
-				users.addAll(response.getData());
-			}
-			// print our list of all users in the account
-			exportToCsv(users);
+			UserPageFetcher fetcher = new UserPageFetcher(apiClient, credential, include);
+			// write our list of all users in the account, page by page as they arrive
+			int count = export(fetcher, format, file, gzip);
+			System.out.println("Listed: " + count + " users to " + file.toAbsolutePath());
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
 			System.err.println("Exception when calling UsersApi#listUsers => \n" + Utils.customErrorResponse(e));
 		} catch (IOException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the IOException
-			System.err.println("Exception when writing data to csv file => \n" + customErrorResponse(e));
+			System.err.println("Exception when writing data to " + file + " => \n" + customErrorResponse(e));
 		}
 	}
 
-	//export user data to a csv
-	private static void exportToCsv(List<User> users) throws IOException {
-		StringBuilder userData = new StringBuilder();
-		userData.append("id,username,email,nickname,home_folder,role,time_zone,download,upload,modify,delete," +
-			                "list,change_password,share,send_notifications,view_form_data,delete_form_data,expiration,accessed,locked,created,modified");
-		userData.append("\n");
-		for (User user : users) {
-			UserAttributes attributes = user.getAttributes();
-			StringBuilder userData2 = new StringBuilder();
-			if (attributes != null) {
-				UserPermissions permissions = attributes.getPermissions();
-				userData2
-					.append(user.getId())
-					.append(COMMA)
-					.append(attributes.getUsername())
-					.append(COMMA)
-					.append(attributes.getEmail())
-					.append(COMMA)
-					.append(attributes.getNickname())
-					.append(COMMA)
-					.append(attributes.getHomePath())
-					.append(COMMA)
-					.append(attributes.getRole().getValue())
-					.append(COMMA)
-					.append(attributes.getTimeZone())
-					.append(COMMA)
-					.append(permissions.isDownload())
-					.append(COMMA)
-					.append(permissions.isUpload())
-					.append(COMMA)
-					.append(permissions.isModify())
-					.append(COMMA)
-					.append(permissions.isDelete())
-					.append(COMMA)
-					.append(permissions.isList())
-					.append(COMMA)
-					.append(permissions.isChangePassword())
-					.append(COMMA)
-					.append(permissions.isShare())
-					.append(COMMA)
-					.append(permissions.isNotification())
-					.append(COMMA)
-					.append(permissions.isViewFormData())
-					.append(COMMA)
-					.append(permissions.isDeleteFormData())
-					.append(COMMA)
-					.append(attributes.getExpiration())
-					.append(COMMA)
-					.append(attributes.getAccessTimestamp())
-					.append(COMMA)
-					.append(attributes.getStatus().getValue() == 0)
-					.append(COMMA)
-					.append(attributes.getCreated())
-					.append(COMMA)
-					.append(attributes.getModified())
-					.append(COMMA);
-			}
-			userData.append(userData2.toString());
-			userData.append("\n");
+	//export user data to a file, streaming the rows as the pages of users arrive
+	private static int export(UserPageFetcher fetcher, ExportFormat format, Path file, boolean gzip) throws ApiException, IOException {
+		try (final ExportSink sink = format.open(file, USER_SCHEMA, gzip)) {
+			return fetcher.fetchAll(new UserPageFetcher.PageHandler() {
+				@Override
+				public void onPage(List<User> users) throws IOException {
+					for (User user : users) {
+						sink.write(toRow(user));
+					}
+				}
+			});
 		}
-		try (PrintWriter out = new PrintWriter(fileName)) {
-			out.println(userData.toString());
+	}
+
+	//values of the export columns of a user
+	private static Object[] toRow(User user) {
+		UserAttributes attributes = user.getAttributes();
+		if (attributes == null) {
+			Object[] row = new Object[USER_SCHEMA.size()];
+			row[0] = user.getId();
+			return row;
 		}
-		System.out.println("Listed: " + users.size() + " users to " + System.getProperty("user.dir") + File.separator + fileName);
+		UserPermissions permissions = attributes.getPermissions() != null ? attributes.getPermissions() : new UserPermissions();
+		return new Object[]{
+			user.getId(),
+			attributes.getUsername(),
+			attributes.getEmail(),
+			attributes.getNickname(),
+			attributes.getHomePath(),
+			attributes.getRole() != null ? attributes.getRole().getValue() : null,
+			attributes.getTimeZone(),
+			permissions.isDownload(),
+			permissions.isUpload(),
+			permissions.isModify(),
+			permissions.isDelete(),
+			permissions.isList(),
+			permissions.isChangePassword(),
+			permissions.isShare(),
+			permissions.isNotification(),
+			permissions.isViewFormData(),
+			permissions.isDeleteFormData(),
+			attributes.getExpiration(),
+			attributes.getAccessTimestamp(),
+			attributes.getStatus() != null ? attributes.getStatus().getValue() == 0 : null,
+			attributes.getCreated(),
+			attributes.getModified()
+		};
 	}
 }
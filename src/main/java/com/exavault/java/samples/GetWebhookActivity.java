@@ -0,0 +1,209 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiClient;
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ActivityApi;
+import com.exavault.client.model.WebhooksActivityEntry;
+import com.exavault.client.model.WebhooksActivityEntryAttributes;
+import org.threeten.bp.OffsetDateTime;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.exavault.java.samples.Utils.customErrorResponse;
+
+/**
+ * To use this sample, add your credentials to a file named {@code credentials.properties} which is located in {@code resources} folder at root level of your project.
+ * <p>
+ * <ul>
+ * 	<li>Your API key will be the {@code exavault.api.Key}</li>
+ * 	<li>Your access token will be {@code exavault.access.token}</li>
+ * 	<li>Your account URL will be the address you should use for the API endpoint</li>
+ * </ul>
+ * <p>
+ * To obtain your API Key and Token, you'll need to use the Developer page within the web file manager
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/#section/Obtaining-Your-API-Key-and-Access-Token">Obtaining-Your-API-Key-and-Access-Token</a>
+ * <p>
+ * Access tokens do not expire, so you should only need to obtain the key and token once.
+ * <p>
+ * Your account URL is determined by the name of your account.
+ * <p>
+ * The URL that you will use is {@code https://accountname.exavault.com/api/v2/} replacing the {@code "accountname"} part with your account name
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/#section/Introduction/The-API-URL">The-API-URL</a>
+ * <p>
+ * This example uses the {@link com.exavault.client.api.ActivityApi} to read the webhook logs of your account and report
+ * the delivery health of each webhook endpoint
+ * <p>
+ * Only the entries logged since the previous run are read, the first run reads the past day. Entries are handled in
+ * batches of at most {@value #BATCH_SIZE}, oldest first, and each batch is added to the endpoint statistics before the
+ * next one is read, so memory stays flat however busy the webhooks are. Pass {@code --follow} to keep reading new
+ * entries and print alerts as endpoints start failing
+ * <p>An example output of this program would look like this:</p>
+ * <pre>
+ * 2020-10-27T09:35Z https://hooks.example.com/exavault: 14 of 22 deliveries failed, 21 retries (retry storm)
+ * Read 1250 new webhook log entries
+ * 1 webhook endpoints:
+ *
+ * https://hooks.example.com/exavault
+ *   1250 deliveries, 37 failed (3.0%), 52 retries
+ *   attempt         p50 1        p90 1        p99 3        max 5
+ *   response bytes  p50 2        p90 2        p99 187      max 187
+ *   worst window 2020-10-27T09:35Z: 14 of 22 failed
+ * </pre>
+ */
+public class GetWebhookActivity {
+
+	private static final String EXPORT = "--export=";
+	private static final String GZIP = "--gzip";
+	private static final String FOLLOW = "--follow";
+	//default number of seconds between two polls in follow mode
+	private static final int DEFAULT_FOLLOW_SECONDS = 60;
+	//largest number of entries handled, and exported to one file, at once
+	static final int BATCH_SIZE = 5000;
+	//checkpoint of this sample, apart from the one GetActivity follows webhook logs with
+	static final String STREAM = "webhook-health";
+	//by default files will be saved in the parent folder of the project, one per batch of new entries
+	static final String fileName = "webhook-logs";
+	//columns of the webhook log export, the types let the columnar format pick compact encodings
+	static final ExportSchema WEBHOOK_SCHEMA = new ExportSchema()
+		.add("id", ExportSchema.Type.LONG)
+		.add("created", ExportSchema.Type.TIMESTAMP)
+		.add("event", ExportSchema.Type.DICTIONARY)
+		.add("endpoint_url", ExportSchema.Type.DICTIONARY)
+		.add("status", ExportSchema.Type.LONG)
+		.add("attempt", ExportSchema.Type.LONG)
+		.add("response_size", ExportSchema.Type.LONG)
+		.add("response", ExportSchema.Type.STRING);
+
+	public static void main(String[] args) {
+		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
+		ApiClient apiClient = ApiClientHelper.initApiClient();
+		Credential credential = ApiClientHelper.getCredential();
+		//pass --export=csv, --export=ndjson or --export=columnar to also save the entries, and --gzip to compress the files
+		//pass --follow, or --follow=SECONDS, to keep reading new entries
+		ExportFormat format = null;
+		boolean gzip = false;
+		int followSeconds = 0;
+		for (String arg : args) {
+			if (GZIP.equals(arg)) {
+				gzip = true;
+			} else if (arg.equals(FOLLOW)) {
+				followSeconds = DEFAULT_FOLLOW_SECONDS;
+			} else if (arg.startsWith(FOLLOW + "=")) {
+				try {
+					followSeconds = ActivityFollower.parseFollowSeconds(arg.substring(FOLLOW.length() + 1));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Invalid " + arg + ", pass a whole number of seconds such as " + FOLLOW + "=" + DEFAULT_FOLLOW_SECONDS);
+					return;
+				}
+			} else if (arg.startsWith(EXPORT)) {
+				try {
+					format = ExportFormat.parse(arg.substring(EXPORT.length()));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Unknown format " + arg.substring(EXPORT.length()) + ", valid formats are csv, ndjson and columnar");
+					return;
+				}
+			}
+		}
+
+		/*
+		 * The getWebhookLogs method of the ActivityApi class gives us the delivery attempts of the webhooks of our account
+		 * <p>
+		 * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getWebhookLogs">getWebhookLogs</a>
+		 * for the details of this method
+		 */
+		ActivityApi activityApi = new ActivityApi(apiClient);
+		ActivityFollower follower = new ActivityFollower(activityApi, credential, null);
+		ActivityCheckpoint checkpoint;
+		try {
+			//the first run starts a day back
+			checkpoint = ActivityCheckpoint.load(credential, STREAM, OffsetDateTime.now().minusDays(1).toInstant().toEpochMilli());
+		} catch (IOException e) {
+			System.err.println("Exception when reading the activity checkpoint => \n" + customErrorResponse(e));
+			return;
+		}
+		WebhookHealth health = new WebhookHealth();
+		BatchHandler handler = new BatchHandler(health, format, gzip);
+		do {
+			try {
+				//entries already seen are dropped by id, the checkpoint moves after every batch handled
+				int read = follower.pollWebhooks(checkpoint, handler, BATCH_SIZE);
+				System.out.println("Read " + read + " new webhook log entries");
+			} catch (ApiException e) {
+				// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+				System.err.println("Exception when calling ActivityApi#getWebhookLogs => \n" + Utils.customErrorResponse(e));
+			} catch (IOException e) {
+				System.err.println("Exception when writing the webhook logs => \n" + customErrorResponse(e));
+			}
+			if (followSeconds > 0) {
+				try {
+					Thread.sleep(TimeUnit.SECONDS.toMillis(followSeconds));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		} while (followSeconds > 0 && !Thread.currentThread().isInterrupted());
+		health.print();
+	}
+
+	//values of the export columns of a webhook log entry
+	static Object[] toRow(WebhooksActivityEntry entry) {
+		WebhooksActivityEntryAttributes attributes = entry.getAttributes();
+		if (attributes == null) {
+			Object[] row = new Object[WEBHOOK_SCHEMA.size()];
+			row[0] = entry.getId();
+			return row;
+		}
+		return new Object[]{
+			entry.getId(),
+			attributes.getCreated(),
+			attributes.getEvent(),
+			attributes.getEndpointUrl(),
+			attributes.getStatus(),
+			attributes.getAttempt(),
+			attributes.getResponseSize(),
+			attributes.getResponse()
+		};
+	}
+
+	/*
+	 * Adds every batch of new entries to the endpoint statistics, prints the alerts it raised and writes it to a file of its own
+	 * Each file is complete before the checkpoint moves past its entries, so a run that stops loses nothing
+	 */
+	private static class BatchHandler implements ActivityFollower.EntryHandler<WebhooksActivityEntry> {
+		private final WebhookHealth health;
+		private final ExportFormat format;
+		private final boolean gzip;
+
+		BatchHandler(WebhookHealth health, ExportFormat format, boolean gzip) {
+			this.health = health;
+			this.format = format;
+			this.gzip = gzip;
+		}
+
+		@Override
+		public void onEntries(List<WebhooksActivityEntry> entries) throws IOException {
+			if (format != null) {
+				//named after the id of the oldest entry of the batch
+				Path file = Paths.get(format.fileName(fileName + "-" + entries.get(0).getId(), gzip));
+				try (ExportSink sink = format.open(file, WEBHOOK_SCHEMA, gzip)) {
+					for (WebhooksActivityEntry entry : entries) {
+						sink.write(toRow(entry));
+					}
+				}
+				System.out.println("Exported: " + entries.size() + " entries to " + file.toAbsolutePath());
+			}
+			for (WebhooksActivityEntry entry : entries) {
+				health.accept(entry);
+			}
+			for (String alert : health.newAlerts()) {
+				System.out.println(alert);
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.exavault.java.samples;
+
+/**
+ * Entity to keep the tuning of the HTTP client used by {@link com.exavault.client.ApiClient}
+ * <p>
+ * Every value can be set in {@code credentials.properties}, see {@link ApiClientHelper} for the property names
+ */
+public class HttpSettings {
+
+	//Maximum number of idle connections kept in the pool
+	private final int maxIdleConnections;
+	//How long an idle connection is kept alive, in seconds
+	private final long keepAliveSeconds;
+	//Connect timeout, in milliseconds
+	private final int connectTimeoutMillis;
+	//Read timeout, in milliseconds
+	private final int readTimeoutMillis;
+	//Write timeout, in milliseconds
+	private final int writeTimeoutMillis;
+	//Maximum number of asynchronous requests in flight
+	private final int maxRequests;
+	//Maximum number of asynchronous requests in flight against one host
+	private final int maxRequestsPerHost;
+
+	public HttpSettings(int maxIdleConnections, long keepAliveSeconds, int connectTimeoutMillis, int readTimeoutMillis,
+	                    int writeTimeoutMillis, int maxRequests, int maxRequestsPerHost) {
+		this.maxIdleConnections = maxIdleConnections;
+		this.keepAliveSeconds = keepAliveSeconds;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.writeTimeoutMillis = writeTimeoutMillis;
+		this.maxRequests = maxRequests;
+		this.maxRequestsPerHost = maxRequestsPerHost;
+	}
+
+	public int getMaxIdleConnections() {
+		return maxIdleConnections;
+	}
+
+	public long getKeepAliveSeconds() {
+		return keepAliveSeconds;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	public int getWriteTimeoutMillis() {
+		return writeTimeoutMillis;
+	}
+
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	public int getMaxRequestsPerHost() {
+		return maxRequestsPerHost;
+	}
+}
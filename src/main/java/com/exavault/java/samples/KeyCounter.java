@@ -0,0 +1,128 @@
+package com.exavault.java.samples;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Counts occurrences of text keys with primitive counters.
+ * <p>
+ * Keys live in an open addressing table next to a {@code long} array of counts, so counting an occurrence
+ * allocates nothing and boxes nothing. The number of distinct keys is capped: once the cap is reached, occurrences
+ * of further keys only add to {@link #getOverflow()}, so memory stays bounded whatever the input.
+ */
+public class KeyCounter {
+	private final int maxKeys;
+	private String[] keys;
+	private long[] counts;
+	private int size;
+	private long overflow;
+
+	/**
+	 * @param maxKeys largest number of distinct keys counted individually
+	 */
+	public KeyCounter(int maxKeys) {
+		if (maxKeys < 1) {
+			throw new IllegalArgumentException("maxKeys must be positive");
+		}
+		this.maxKeys = maxKeys;
+		this.keys = new String[16];
+		this.counts = new long[16];
+	}
+
+	/**
+	 * Count one occurrence of a key
+	 *
+	 * @param key the key, null is ignored
+	 */
+	public void add(String key) {
+		if (key == null) {
+			return;
+		}
+		int slot = slotOf(key, keys);
+		if (keys[slot] != null) {
+			counts[slot]++;
+			return;
+		}
+		if (size == maxKeys) {
+			overflow++;
+			return;
+		}
+		if ((size + 1) * 2 > keys.length) {
+			grow();
+			slot = slotOf(key, keys);
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		size++;
+	}
+
+	/**
+	 * Count of a key
+	 *
+	 * @param key the key
+	 * @return its count, 0 if it was never counted individually
+	 */
+	public long get(String key) {
+		int slot = slotOf(key, keys);
+		return keys[slot] != null ? counts[slot] : 0;
+	}
+
+	//number of distinct keys counted individually
+	public int size() {
+		return size;
+	}
+
+	//occurrences of keys which came after the cap was reached
+	public long getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * The keys with the highest counts
+	 *
+	 * @param n largest number of keys to return
+	 * @return the keys, highest count first
+	 */
+	public String[] top(int n) {
+		String[] all = new String[size];
+		int i = 0;
+		for (String key : keys) {
+			if (key != null) {
+				all[i++] = key;
+			}
+		}
+		Arrays.sort(all, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int byCount = Long.compare(get(b), get(a));
+				return byCount != 0 ? byCount : a.compareTo(b);
+			}
+		});
+		return Arrays.copyOf(all, Math.min(n, all.length));
+	}
+
+	private void grow() {
+		String[] oldKeys = keys;
+		long[] oldCounts = counts;
+		keys = new String[oldKeys.length * 2];
+		counts = new long[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = slotOf(oldKeys[i], keys);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	//slot holding the key, or the empty slot where it belongs; the table is never full
+	private static int slotOf(String key, String[] table) {
+		int mask = table.length - 1;
+		int h = key.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (table[slot] != null && !table[slot].equals(key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+}
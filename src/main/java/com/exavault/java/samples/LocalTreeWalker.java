@@ -0,0 +1,138 @@
+package com.exavault.java.samples;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walks a local folder tree and hands every matching file to a {@link FileHandler} as soon as it is found.
+ * <p>
+ * Nothing is collected up front, so a folder of millions of files starts being processed right away and
+ * memory use does not depend on the size of the tree.
+ * <p>
+ * Files can be filtered with glob patterns (see {@link FileSystem#getPathMatcher(String)}). A pattern is matched
+ * against the path relative to the root, using forward slashes, and against the file name alone, so
+ * {@code *.csv} matches CSV files at any depth while {@code reports/**} only matches below {@code reports}.
+ * A folder matching an exclude pattern is skipped with all of its content.
+ */
+public class LocalTreeWalker {
+	private final Path root;
+	private final List<PathMatcher> includes = new ArrayList<>();
+	private final List<PathMatcher> excludes = new ArrayList<>();
+
+	/**
+	 * Callback receiving the files of the tree
+	 */
+	public interface FileHandler {
+		/**
+		 * @param file         the file found
+		 * @param relativePath path of the file relative to the root, using forward slashes
+		 * @param attrs        attributes of the file
+		 * @throws IOException the file could not be handled, the walk stops
+		 */
+		void onFile(Path file, String relativePath, BasicFileAttributes attrs) throws IOException;
+	}
+
+	public LocalTreeWalker(Path root) {
+		this.root = root;
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Only walk files matching this glob. If no include pattern is given every file is included.
+	 *
+	 * @param glob glob pattern
+	 * @return this walker
+	 */
+	public LocalTreeWalker include(String glob) {
+		includes.add(matcher(glob));
+		return this;
+	}
+
+	/**
+	 * Skip files and folders matching this glob
+	 *
+	 * @param glob glob pattern
+	 * @return this walker
+	 */
+	public LocalTreeWalker exclude(String glob) {
+		excludes.add(matcher(glob));
+		return this;
+	}
+
+	/**
+	 * Walk the tree, calling the handler for every regular file accepted by the patterns
+	 * <p>
+	 * Files and folders which cannot be read, such as dangling links, are reported to System.err and skipped,
+	 * so a single one does not stop the walk.
+	 *
+	 * @param handler callback for the files
+	 * @throws IOException the handler failed
+	 */
+	public void walk(final FileHandler handler) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				if (!dir.equals(root) && matchesAny(excludes, dir)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				//walk only files, no directories or special files
+				if (attrs.isRegularFile() && (includes.isEmpty() || matchesAny(includes, file))
+					&& !matchesAny(excludes, file)) {
+					handler.onFile(file, relativePath(file), attrs);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				System.err.println("Skipping " + file + ", it cannot be read => " + e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+				//the folder could only be read in part, what was read has been handled
+				if (e != null) {
+					System.err.println("Skipping the rest of " + dir + ", it cannot be read => " + e);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	//path of a file relative to the root, using forward slashes whatever the local separator is
+	public String relativePath(Path file) {
+		return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+	}
+
+	private boolean matchesAny(List<PathMatcher> matchers, Path path) {
+		Path relative = root.relativize(path);
+		Path name = path.getFileName();
+		for (PathMatcher matcher : matchers) {
+			if (matcher.matches(relative) || (name != null && matcher.matches(name))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private PathMatcher matcher(String glob) {
+		return root.getFileSystem().getPathMatcher("glob:" + glob);
+	}
+}
@@ -0,0 +1,128 @@
+package com.exavault.java.samples;
+
+/**
+ * Histogram of non-negative whole numbers with a fixed relative precision, laid out like an HDR histogram.
+ * <p>
+ * Values below the sub-bucket count are counted exactly. Above that, every power of two is split into half as many
+ * linear sub-buckets, so a recorded value is known to within the precision asked for, whatever its magnitude. The
+ * counts are a single {@code long} array sized once from the highest value to track: recording allocates nothing
+ * and percentiles are read in one pass, so a histogram can be kept per endpoint for as long as a process runs.
+ */
+public class LogHistogram {
+	private final long highestTrackableValue;
+	private final int subBucketBits;
+	private final int subBucketCount;
+	private final int subBucketHalfCount;
+	private final long[] counts;
+	private long totalCount;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/**
+	 * @param highestTrackableValue highest value told apart, larger values are counted in the last bucket
+	 * @param significantDigits     number of significant decimal digits kept, from 1 to 4
+	 */
+	public LogHistogram(long highestTrackableValue, int significantDigits) {
+		if (highestTrackableValue < 2 || significantDigits < 1 || significantDigits > 4) {
+			throw new IllegalArgumentException("highestTrackableValue must be at least 2 and significantDigits between 1 and 4");
+		}
+		this.highestTrackableValue = highestTrackableValue;
+		long largestExactValue = 2 * (long) Math.pow(10, significantDigits);
+		this.subBucketBits = 64 - Long.numberOfLeadingZeros(largestExactValue - 1);
+		this.subBucketCount = 1 << subBucketBits;
+		this.subBucketHalfCount = subBucketCount >> 1;
+		this.counts = new long[indexOf(highestTrackableValue) + 1];
+	}
+
+	/**
+	 * Count one occurrence of a value
+	 *
+	 * @param value the value, not negative
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must not be negative");
+		}
+		counts[indexOf(Math.min(value, highestTrackableValue))]++;
+		totalCount++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Add the counts of another histogram with the same range and precision
+	 *
+	 * @param other the histogram to add
+	 */
+	public void add(LogHistogram other) {
+		if (other.counts.length != counts.length || other.subBucketBits != subBucketBits) {
+			throw new IllegalArgumentException("histograms differ in range or precision");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	//smallest value recorded, 0 if there is none
+	public long getMin() {
+		return totalCount > 0 ? min : 0;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return totalCount > 0 ? (double) sum / totalCount : 0;
+	}
+
+	/**
+	 * Value at a percentile
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return highest value equivalent to the one at the percentile, 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				//the last bucket also holds the values above the trackable range
+				return i < counts.length - 1 ? Math.min(highestValueAt(i), max) : max;
+			}
+		}
+		return max;
+	}
+
+	//values below the sub-bucket count have a bucket each, above that a power of two has half as many buckets
+	private int indexOf(long value) {
+		if (value < subBucketCount) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (subBucketBits - 1);
+		return subBucketCount + (shift - 1) * subBucketHalfCount + (int) ((value >>> shift) - subBucketHalfCount);
+	}
+
+	private long highestValueAt(int index) {
+		if (index < subBucketCount) {
+			return index;
+		}
+		int shift = (index - subBucketCount) / subBucketHalfCount + 1;
+		long subBucket = (index - subBucketCount) % subBucketHalfCount + subBucketHalfCount;
+		return (subBucket << shift) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,264 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceAttributes;
+import com.exavault.client.model.ResourceResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On disk cache of {@link RemoteIndex}es, one file per account and remote folder.
+ * <p>
+ * Before a cached manifest is used, the folder itself is read with
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operation/getResourceInfo">getResourceInfo</a>
+ * and its size, file count and modification time are compared with the ones stored in the manifest.
+ * If they still match and the manifest is younger than the time to live, no listing call is made at all.
+ * Otherwise the manifest is refreshed folder by folder: the direct contents of the folder are listed, and only
+ * the subfolders whose own fingerprint changed are listed in turn, the files of the others are taken from the
+ * manifest. Once the time to live is over, the whole tree is listed again.
+ * <p>
+ * Fingerprints are always taken before the listing they go with, so a change made while listing or syncing
+ * shows up as a changed fingerprint on the next run instead of being hidden. After a sync, {@link #save} stores
+ * the index as updated by the uploads with those fingerprints; the next run then lists again only the folders
+ * which received uploads.
+ * <p>
+ * A manifest is a compact binary file: a header with the format version, account, folder and listing time,
+ * the path and fingerprint of every folder, then the id, size, modification time and path of every file.
+ */
+public class ManifestCache {
+	//default folder for the manifests, relative to the working directory
+	public static final String DEFAULT_CACHE_DIR = ".manifest-cache";
+	//default time after which a manifest is listed again even if the folder looks unchanged
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+	private static final int MAGIC = 0x45564d46;
+	private static final int VERSION = 2;
+	private final File cacheDir;
+	private final long ttlMillis;
+
+	public ManifestCache() {
+		this(new File(DEFAULT_CACHE_DIR), DEFAULT_TTL_MILLIS);
+	}
+
+	/**
+	 * @param cacheDir  folder holding the manifests
+	 * @param ttlMillis age in milliseconds after which a manifest is not trusted any more
+	 */
+	public ManifestCache(File cacheDir, long ttlMillis) {
+		this.cacheDir = cacheDir;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Get the index of a remote folder, from the cache if it is still valid, from the API otherwise
+	 *
+	 * @param resourcesApi Resource API to be used
+	 * @param credential   Credentials
+	 * @param basePath     remote folder
+	 * @return the index of the folder
+	 * @throws ApiException the folder could not be read or listed
+	 */
+	public RemoteIndex load(ResourcesApi resourcesApi, Credential credential, String basePath) throws ApiException {
+		//taken before listing anything, a change made meanwhile makes the next run look again
+		String fingerprint = fingerprint(resourcesApi, credential, basePath);
+		File file = manifestFile(credential, basePath);
+		RemoteIndex cached = null;
+		if (file.isFile()) {
+			try {
+				cached = read(file, credential.getApiUrl(), basePath);
+			} catch (IOException e) {
+				//a damaged manifest is simply rebuilt
+				System.err.println("Ignoring unreadable manifest " + file + " => \n" + Utils.customErrorResponse(e));
+			}
+		}
+		if (cached != null && fingerprint.equals(cached.getFolderFingerprint(basePath))) {
+			return cached;
+		}
+		RemoteIndex index = cached != null
+			? refresh(resourcesApi, credential, basePath, cached) : RemoteIndex.build(resourcesApi, credential, basePath);
+		index.putFolder(basePath, fingerprint);
+		try {
+			write(file, credential.getApiUrl(), basePath, index);
+		} catch (IOException e) {
+			System.err.println("Could not write manifest " + file + " => \n" + Utils.customErrorResponse(e));
+		}
+		return index;
+	}
+
+	/**
+	 * Store an index which was kept up to date by the caller, typically after a sync uploaded files
+	 * <p>
+	 * The folder fingerprints stay the ones taken when the index was loaded, so whatever changed since then,
+	 * uploads of the caller included, is listed again by the next load.
+	 *
+	 * @param credential Credentials
+	 * @param basePath   remote folder
+	 * @param index      the up to date index
+	 * @throws IOException the manifest could not be written
+	 */
+	public void save(Credential credential, String basePath, RemoteIndex index) throws IOException {
+		write(manifestFile(credential, basePath), credential.getApiUrl(), basePath, index);
+	}
+
+	//list again the folders whose fingerprint changed, the files of the other folders are kept from the manifest
+	private static RemoteIndex refresh(ResourcesApi resourcesApi, Credential credential, String basePath, RemoteIndex cached)
+		throws ApiException {
+		//the time to live still counts from the last full listing
+		RemoteIndex index = new RemoteIndex(cached.getListedAtMillis());
+		Set<String> unchanged = new HashSet<>();
+		Deque<String> changed = new ArrayDeque<>();
+		changed.add(basePath);
+		while (!changed.isEmpty()) {
+			String folder = changed.poll();
+			try {
+				//without a name to match, only the direct contents of the folder are listed
+				ResourcePaginator children = new ResourcePaginator(resourcesApi, credential, folder, "name", null, null, null,
+					ResourcePaginator.MAX_PAGE_SIZE);
+				while (children.hasNext()) {
+					Resource child = children.next();
+					ResourceAttributes attributes = child.getAttributes();
+					if (attributes == null || attributes.getPath() == null) {
+						continue;
+					}
+					index.add(child);
+					if (attributes.getType() == ResourceAttributes.TypeEnum.DIR) {
+						String path = attributes.getPath();
+						if (RemoteIndex.fingerprint(attributes).equals(cached.getFolderFingerprint(path))) {
+							unchanged.add(path);
+						} else {
+							changed.add(path);
+						}
+					}
+				}
+			} catch (ResourcePaginator.PageException e) {
+				if (e.getApiException().getCode() != RemoteIndex.RESPONSE_CODE_404) {
+					throw e.getApiException();
+				}
+				//removed since its parent was listed
+			}
+		}
+		for (Map.Entry<String, RemoteIndex.Entry> entry : cached.getEntries().entrySet()) {
+			if (isBelowAny(entry.getKey(), unchanged, basePath)) {
+				index.put(entry.getKey(), entry.getValue());
+			}
+		}
+		for (Map.Entry<String, String> folder : cached.getFolders().entrySet()) {
+			if (isBelowAny(folder.getKey(), unchanged, basePath)) {
+				index.putFolder(folder.getKey(), folder.getValue());
+			}
+		}
+		return index;
+	}
+
+	//whether one of the parent folders of a path, below the base folder, is in the set
+	private static boolean isBelowAny(String path, Set<String> folders, String basePath) {
+		for (int slash = path.lastIndexOf('/'); slash > basePath.length(); slash = path.lastIndexOf('/', slash - 1)) {
+			if (folders.contains(path.substring(0, slash))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//cheap summary of the folder state, it changes whenever files below the folder are added, removed or changed
+	private static String fingerprint(ResourcesApi resourcesApi, Credential credential, String basePath) throws ApiException {
+		try {
+			ResourceResponse result = resourcesApi.getResourceInfo(credential.getEvApiKey(), credential.getEvAccessToken(), basePath, null);
+			Resource data = result.getData();
+			if (data == null || data.getAttributes() == null) {
+				return "";
+			}
+			return RemoteIndex.fingerprint(data.getAttributes());
+		} catch (ApiException e) {
+			if (e.getCode() == RemoteIndex.RESPONSE_CODE_404) {
+				//the folder does not exist yet
+				return "";
+			}
+			throw e;
+		}
+	}
+
+	private File manifestFile(Credential credential, String basePath) {
+		return new File(cacheDir, Utils.sha1Hex(credential.getApiUrl() + "|" + basePath) + ".manifest");
+	}
+
+	//the manifest, null if it belongs to another folder, has an older format or outlived its time to live
+	private RemoteIndex read(File file, String account, String basePath) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			if (!account.equals(in.readUTF()) || !basePath.equals(in.readUTF())) {
+				return null;
+			}
+			long created = in.readLong();
+			if (System.currentTimeMillis() - created > ttlMillis) {
+				return null;
+			}
+			RemoteIndex index = new RemoteIndex(created);
+			int folders = in.readInt();
+			for (int i = 0; i < folders; i++) {
+				String path = in.readUTF();
+				index.putFolder(path, in.readUTF());
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long id = in.readLong();
+				long size = in.readLong();
+				long modified = in.readLong();
+				index.put(in.readUTF(), new RemoteIndex.Entry(id, size, modified));
+			}
+			return index;
+		}
+	}
+
+	private void write(File file, String account, String basePath, RemoteIndex index) throws IOException {
+		Files.createDirectories(cacheDir.toPath());
+		//write next to the manifest, then swap, so a crash never leaves half a manifest behind
+		Path temp = Files.createTempFile(cacheDir.toPath(), "manifest", ".tmp");
+		try {
+			//snapshot, the count written first must match the entries that follow
+			Map<String, String> folders = new HashMap<>(index.getFolders());
+			Map<String, RemoteIndex.Entry> entries = new HashMap<>(index.getEntries());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(account);
+				out.writeUTF(basePath);
+				//the time to live counts from the last full listing, saving an updated index does not extend it
+				out.writeLong(index.getListedAtMillis());
+				out.writeInt(folders.size());
+				for (Map.Entry<String, String> folder : folders.entrySet()) {
+					out.writeUTF(folder.getKey());
+					out.writeUTF(folder.getValue());
+				}
+				out.writeInt(entries.size());
+				for (Map.Entry<String, RemoteIndex.Entry> entry : entries.entrySet()) {
+					out.writeLong(entry.getValue().getId());
+					out.writeLong(entry.getValue().getSize());
+					out.writeLong(entry.getValue().getModifiedSeconds());
+					out.writeUTF(entry.getKey());
+				}
+			}
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
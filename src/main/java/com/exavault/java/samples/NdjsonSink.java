@@ -0,0 +1,54 @@
+package com.exavault.java.samples;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes rows as <a href="http://ndjson.org/">newline delimited JSON</a>: one object per line, keyed by column name.
+ * <p>
+ * Numbers and booleans are written as JSON numbers and booleans, everything else as strings. Null values are
+ * left out of the object.
+ */
+public class NdjsonSink implements ExportSink {
+	private final Writer out;
+	private final JsonWriter json;
+	private final ExportSchema schema;
+
+	public NdjsonSink(Writer out, ExportSchema schema) {
+		this.out = out;
+		this.schema = schema;
+		this.json = new JsonWriter(out);
+		//lenient, so that the writer accepts one top level object per row
+		this.json.setLenient(true);
+	}
+
+	@Override
+	public void write(Object... values) throws IOException {
+		json.beginObject();
+		for (int i = 0; i < schema.size(); i++) {
+			Object value = i < values.length ? values[i] : null;
+			if (value == null) {
+				continue;
+			}
+			json.name(schema.getName(i));
+			if (value instanceof Boolean) {
+				json.value((Boolean) value);
+			} else if (value instanceof Number) {
+				json.value((Number) value);
+			} else {
+				json.value(String.valueOf(value));
+			}
+		}
+		json.endObject();
+		//the JSON writer does not buffer, the line break can go straight to the underlying writer
+		out.write('\n');
+	}
+
+	@Override
+	public void close() throws IOException {
+		//closing the JSON writer would reject an export without rows as an incomplete document
+		out.close();
+	}
+}
@@ -0,0 +1,455 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.NotificationsApi;
+import com.exavault.client.model.AddNotificationRequestBody;
+import com.exavault.client.model.EmptyResponse;
+import com.exavault.client.model.Notification;
+import com.exavault.client.model.NotificationAttributes;
+import com.exavault.client.model.NotificationCollectionResponse;
+import com.exavault.client.model.NotificationRecipient;
+import com.exavault.client.model.NotificationResponse;
+import com.exavault.client.model.UpdateNotificationByIdRequestBody;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
+
+/**
+ * Brings the folder notifications of the account in line with a {@link NotificationSpec}.
+ * <p>
+ * All the folder notifications are listed first, the first page on its own to learn the total and the others
+ * several at a time. Offset pages read in parallel can skip a notification when others are added or deleted
+ * meanwhile, so a listing whose total changed between pages is read again, and planning fails after
+ * {@value #LIST_ATTEMPTS} such listings rather than add notifications that may already exist.
+ * <p>
+ * Notifications are indexed by folder and action, and compared with the spec: a missing notification is added and
+ * one whose usernames, recipients, message or email setting differ is updated in place. Extra notifications for the
+ * same folder and action are reported as duplicates, and only deleted when asked with {@link #apply(Plan, boolean)}.
+ * Notifications already matching the spec cost nothing beyond the listing, so a nightly run over thousands of
+ * notifications only makes the calls that change something. Notifications of folders outside the spec are left alone.
+ * <p>
+ * The changes are applied by a bounded pool from {@link BulkExecutors}. Adding is only retried when the server
+ * throttled the call; updates and deletes are idempotent and also retried on server errors.
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/v2#operation/listNotifications">listNotifications</a>
+ * for the details of the listing
+ */
+public class NotificationReconciler {
+	//number of notifications per listNotifications call
+	public static final int PAGE_SIZE = 100;
+	//number of times the notifications are listed before giving up on a listing that keeps changing
+	public static final int LIST_ATTEMPTS = 3;
+	private static final String FOLDER = "folder";
+	private final NotificationsApi notificationsApi;
+	private final Credential credential;
+	private final int workers;
+	private final int queueCapacity;
+
+	/**
+	 * The calls needed to reach a spec
+	 */
+	public static class Plan {
+		private final List<NotificationSpec.Entry> additions = new ArrayList<>();
+		private final Map<Integer, NotificationSpec.Entry> updates = new LinkedHashMap<>();
+		private final List<Integer> duplicates = new ArrayList<>();
+		private int unchanged;
+
+		public List<NotificationSpec.Entry> getAdditions() {
+			return additions;
+		}
+
+		//entries to apply, by id of the notification they replace
+		public Map<Integer, NotificationSpec.Entry> getUpdates() {
+			return updates;
+		}
+
+		//ids of the extra notifications of a folder and action, only deleted when asked to
+		public List<Integer> getDuplicates() {
+			return duplicates;
+		}
+
+		public int getUnchanged() {
+			return unchanged;
+		}
+
+		@Override
+		public String toString() {
+			return additions.size() + " to add, " + updates.size() + " to update, " + duplicates.size()
+				+ " duplicates, " + unchanged + " unchanged";
+		}
+	}
+
+	/**
+	 * Outcome counts of applying a plan
+	 */
+	public static class Result {
+		private final AtomicInteger added = new AtomicInteger();
+		private final AtomicInteger updated = new AtomicInteger();
+		private final AtomicInteger deleted = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+
+		public int getAdded() {
+			return added.get();
+		}
+
+		public int getUpdated() {
+			return updated.get();
+		}
+
+		public int getDeleted() {
+			return deleted.get();
+		}
+
+		public int getFailed() {
+			return failed.get();
+		}
+
+		@Override
+		public String toString() {
+			return added + " added, " + updated + " updated, " + deleted + " duplicates deleted, " + failed + " failed";
+		}
+	}
+
+	public NotificationReconciler(NotificationsApi notificationsApi, Credential credential) {
+		this(notificationsApi, credential, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param notificationsApi Notifications API to be used
+	 * @param credential       Credentials
+	 * @param workers          number of calls made at the same time
+	 * @param queueCapacity    number of calls allowed to wait for a free worker
+	 */
+	public NotificationReconciler(NotificationsApi notificationsApi, Credential credential, int workers, int queueCapacity) {
+		if (workers < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("workers and queueCapacity must be positive");
+		}
+		this.notificationsApi = notificationsApi;
+		this.credential = credential;
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Compare the spec with the folder notifications of the account
+	 *
+	 * @param spec the notifications wanted
+	 * @return the calls needed
+	 * @throws ApiException the notifications could not be listed, or kept changing while they were
+	 */
+	public Plan plan(NotificationSpec spec) throws ApiException {
+		//existing notifications by folder and action, oldest first
+		Map<String, List<Notification>> existing = new HashMap<>();
+		for (Notification notification : listAll()) {
+			NotificationAttributes attributes = notification.getAttributes();
+			if (attributes == null || attributes.getPath() == null || attributes.getAction() == null) {
+				continue;
+			}
+			String key = NotificationSpec.keyOf(NotificationSpec.normalize(attributes.getPath()), attributes.getAction().toString());
+			List<Notification> same = existing.get(key);
+			if (same == null) {
+				same = new ArrayList<>(1);
+				existing.put(key, same);
+			}
+			same.add(notification);
+		}
+		Plan plan = new Plan();
+		for (NotificationSpec.Entry entry : spec.getEntries()) {
+			List<Notification> same = existing.get(NotificationSpec.keyOf(entry.getPath(), entry.getAction().toString()));
+			if (same == null) {
+				plan.additions.add(entry);
+				continue;
+			}
+			//keep the one already matching if there is one, the others of the folder and action are duplicates
+			Notification kept = same.get(0);
+			for (Notification notification : same) {
+				if (matches(entry, notification.getAttributes())) {
+					kept = notification;
+					break;
+				}
+			}
+			for (Notification notification : same) {
+				if (notification != kept) {
+					plan.duplicates.add(notification.getId());
+				}
+			}
+			if (matches(entry, kept.getAttributes())) {
+				plan.unchanged++;
+			} else {
+				plan.updates.put(kept.getId(), entry);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Make the additions and updates of a plan, several at a time, leaving duplicates alone
+	 *
+	 * @param plan the plan
+	 * @return the outcome counts
+	 */
+	public Result apply(Plan plan) {
+		return apply(plan, false);
+	}
+
+	/**
+	 * Make the calls of a plan, several at a time
+	 *
+	 * @param plan             the plan
+	 * @param deleteDuplicates whether the duplicates of the plan are deleted too
+	 * @return the outcome counts
+	 */
+	public Result apply(Plan plan, boolean deleteDuplicates) {
+		final Result result = new Result();
+		ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		try {
+			for (final NotificationSpec.Entry entry : plan.additions) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						add(entry, result);
+					}
+				});
+			}
+			for (final Map.Entry<Integer, NotificationSpec.Entry> update : plan.updates.entrySet()) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						update(update.getKey(), update.getValue(), result);
+					}
+				});
+			}
+			for (final Integer id : deleteDuplicates ? plan.duplicates : Collections.<Integer>emptyList()) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						delete(id, result);
+					}
+				});
+			}
+		} finally {
+			BulkExecutors.awaitCompletion(executor);
+		}
+		return result;
+	}
+
+	/**
+	 * Plan and apply in one go, leaving duplicates alone
+	 *
+	 * @param spec the notifications wanted
+	 * @return the outcome counts
+	 * @throws ApiException the notifications could not be listed, nothing was changed
+	 */
+	public Result reconcile(NotificationSpec spec) throws ApiException {
+		return reconcile(spec, false);
+	}
+
+	/**
+	 * Plan and apply in one go
+	 *
+	 * @param spec             the notifications wanted
+	 * @param deleteDuplicates whether extra notifications of a folder and action are deleted
+	 * @return the outcome counts
+	 * @throws ApiException the notifications could not be listed, nothing was changed
+	 */
+	public Result reconcile(NotificationSpec spec, boolean deleteDuplicates) throws ApiException {
+		return apply(plan(spec), deleteDuplicates);
+	}
+
+	private void add(NotificationSpec.Entry entry, Result result) {
+		final AddNotificationRequestBody requestBody = new AddNotificationRequestBody();
+		requestBody.setResource(entry.getPath());
+		requestBody.setType(AddNotificationRequestBody.TypeEnum.FOLDER);
+		requestBody.setAction(entry.getAction());
+		requestBody.setUsernames(entry.getUsernames());
+		requestBody.setRecipients(entry.getRecipients());
+		requestBody.setMessage(entry.getMessage());
+		requestBody.setSendEmail(entry.isSendEmail());
+		try {
+			//adding a notification is not idempotent, it is only retried when the server throttled the request
+			NotificationResponse response = RetryPolicy.forAccount(credential).execute("addNotification", false, new RetryPolicy.ApiCall<NotificationResponse>() {
+				@Override
+				public NotificationResponse call() throws ApiException {
+					return notificationsApi.addNotification(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+				}
+			});
+			if (response != null && response.getResponseStatus() == RESPONSE_CODE_201) {
+				result.added.incrementAndGet();
+			} else {
+				result.failed.incrementAndGet();
+			}
+		} catch (ApiException e) {
+			result.failed.incrementAndGet();
+			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+			System.err.println("Exception when calling NotificationsApi#addNotification for " + entry.getPath() + " => \n" + Utils.customErrorResponse(e));
+		}
+	}
+
+	private void update(final Integer id, NotificationSpec.Entry entry, Result result) {
+		final UpdateNotificationByIdRequestBody requestBody = new UpdateNotificationByIdRequestBody();
+		requestBody.setAction(UpdateNotificationByIdRequestBody.ActionEnum.fromValue(entry.getAction().toString()));
+		requestBody.setUsernames(entry.getUsernames());
+		requestBody.setRecipients(entry.getRecipients());
+		requestBody.setMessage(entry.getMessage() != null ? entry.getMessage() : "");
+		requestBody.setSendEmail(entry.isSendEmail());
+		try {
+			//the update sets every field, repeating it is harmless
+			RetryPolicy.forAccount(credential).execute("updateNotificationById", true, new RetryPolicy.ApiCall<NotificationResponse>() {
+				@Override
+				public NotificationResponse call() throws ApiException {
+					return notificationsApi.updateNotificationById(credential.getEvApiKey(), credential.getEvAccessToken(), id, requestBody);
+				}
+			});
+			result.updated.incrementAndGet();
+		} catch (ApiException e) {
+			result.failed.incrementAndGet();
+			System.err.println("Exception when calling NotificationsApi#updateNotificationById for " + entry.getPath() + " => \n" + Utils.customErrorResponse(e));
+		}
+	}
+
+	private void delete(final Integer id, Result result) {
+		try {
+			RetryPolicy.forAccount(credential).execute("deleteNotificationById", true, new RetryPolicy.ApiCall<EmptyResponse>() {
+				@Override
+				public EmptyResponse call() throws ApiException {
+					return notificationsApi.deleteNotificationById(credential.getEvApiKey(), credential.getEvAccessToken(), id);
+				}
+			});
+			result.deleted.incrementAndGet();
+		} catch (ApiException e) {
+			result.failed.incrementAndGet();
+			System.err.println("Exception when calling NotificationsApi#deleteNotificationById for #" + id + " => \n" + Utils.customErrorResponse(e));
+		}
+	}
+
+	//every folder notification, listed again while the listing changes under us
+	private Collection<Notification> listAll() throws ApiException {
+		for (int attempt = 1; attempt <= LIST_ATTEMPTS; attempt++) {
+			Collection<Notification> notifications = listOnce();
+			if (notifications != null) {
+				return notifications;
+			}
+			if (attempt < LIST_ATTEMPTS) {
+				System.err.println("Folder notifications changed while they were listed, listing again");
+			}
+		}
+		throw new ApiException("Folder notifications kept changing while they were listed " + LIST_ATTEMPTS
+			+ " times, nothing was changed");
+	}
+
+	//every folder notification, the pages after the first are listed several at a time, null if they changed meanwhile
+	private Collection<Notification> listOnce() throws ApiException {
+		NotificationCollectionResponse first = listNotifications(0);
+		List<Notification> data = dataOf(first);
+		int total = first.getTotalResults() != null ? first.getTotalResults() : data.size();
+		//by id, a notification added while listing may shift another one onto the next page as well
+		Map<Integer, Notification> byId = new LinkedHashMap<>();
+		addAll(byId, data);
+		if (data.isEmpty() || data.size() >= total) {
+			return byId.values();
+		}
+		//the server may cap the page size below ours, a full first page tells the size it really uses
+		int step = data.size();
+		ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		List<Future<NotificationCollectionResponse>> pages = new ArrayList<>();
+		try {
+			for (int offset = step; offset < total; offset += step) {
+				final int pageOffset = offset;
+				pages.add(executor.submit(new Callable<NotificationCollectionResponse>() {
+					@Override
+					public NotificationCollectionResponse call() throws ApiException {
+						return listNotifications(pageOffset);
+					}
+				}));
+			}
+			for (Future<NotificationCollectionResponse> page : pages) {
+				NotificationCollectionResponse response = page.get();
+				//a different total means pages were shifted by an add or delete, some may have skipped a notification
+				if (response.getTotalResults() == null || response.getTotalResults() != total) {
+					return null;
+				}
+				addAll(byId, dataOf(response));
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ApiException) {
+				throw (ApiException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApiException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+		//an add and a delete in between leave the total alone but can still shift one notification past us
+		return byId.size() == total ? byId.values() : null;
+	}
+
+	private NotificationCollectionResponse listNotifications(final int offset) throws ApiException {
+		return RetryPolicy.forAccount(credential).execute("listNotifications", true, new RetryPolicy.ApiCall<NotificationCollectionResponse>() {
+			@Override
+			public NotificationCollectionResponse call() throws ApiException {
+				return notificationsApi.listNotifications(credential.getEvApiKey(), credential.getEvAccessToken(), FOLDER,
+					offset, null, PAGE_SIZE, null, null);
+			}
+		});
+	}
+
+	//whether an existing notification already has the usernames, recipients, message and email setting of the entry
+	private static boolean matches(NotificationSpec.Entry entry, NotificationAttributes attributes) {
+		if (attributes == null) {
+			return false;
+		}
+		Set<String> recipients = new HashSet<>();
+		if (attributes.getRecipients() != null) {
+			for (NotificationRecipient recipient : attributes.getRecipients()) {
+				recipients.add(lowerCase(recipient.getEmail()));
+			}
+		}
+		return lowerCase(entry.getUsernames()).equals(lowerCase(attributes.getUsernames()))
+			&& lowerCase(entry.getRecipients()).equals(recipients)
+			&& textOf(entry.getMessage()).equals(textOf(attributes.getMessage()))
+			&& entry.isSendEmail() == Boolean.TRUE.equals(attributes.isSendEmail());
+	}
+
+	private static Set<String> lowerCase(List<String> values) {
+		Set<String> set = new HashSet<>();
+		for (String value : values != null ? values : Collections.<String>emptyList()) {
+			set.add(lowerCase(value));
+		}
+		return set;
+	}
+
+	private static String lowerCase(String value) {
+		return value != null ? value.trim().toLowerCase(Locale.ROOT) : "";
+	}
+
+	private static String textOf(String message) {
+		return message != null ? message.trim() : "";
+	}
+
+	private static void addAll(Map<Integer, Notification> byId, List<Notification> notifications) {
+		for (Notification notification : notifications) {
+			byId.put(notification.getId(), notification);
+		}
+	}
+
+	private static List<Notification> dataOf(NotificationCollectionResponse response) {
+		return response.getData() != null ? response.getData() : Collections.<Notification>emptyList();
+	}
+}
@@ -0,0 +1,177 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.model.AddNotificationRequestBody;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The folder notifications an account should have, declared as folders &times; actions &times; recipients.
+ * <p>
+ * Each rule expands to one notification per folder and action, all with the same recipients, usernames and
+ * message. A folder and action pair is one notification: when several rules name the same pair, the last one wins.
+ * A spec can be built in code or read from a JSON file such as
+ * <pre>
+ * {"notifications": [
+ *   {"folders": ["/clients/acme", "/clients/globex"], "actions": ["upload", "download"],
+ *    "recipients": ["ops@example.com"], "usernames": ["notice_user_all"], "message": "New activity"}
+ * ]}
+ * </pre>
+ * {@code usernames} defaults to {@code notice_user_all}, and {@code sendEmail} to true.
+ */
+public class NotificationSpec {
+	//anyone, users and share recipients alike
+	static final String USER_ALL = "notice_user_all";
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * One notification of the spec
+	 */
+	public static class Entry {
+		private final String path;
+		private final AddNotificationRequestBody.ActionEnum action;
+		private final List<String> usernames;
+		private final List<String> recipients;
+		private final String message;
+		private final boolean sendEmail;
+
+		Entry(String path, AddNotificationRequestBody.ActionEnum action, List<String> usernames, List<String> recipients,
+			String message, boolean sendEmail) {
+			this.path = path;
+			this.action = action;
+			this.usernames = usernames;
+			this.recipients = recipients;
+			this.message = message;
+			this.sendEmail = sendEmail;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public AddNotificationRequestBody.ActionEnum getAction() {
+			return action;
+		}
+
+		public List<String> getUsernames() {
+			return usernames;
+		}
+
+		public List<String> getRecipients() {
+			return recipients;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		public boolean isSendEmail() {
+			return sendEmail;
+		}
+	}
+
+	/**
+	 * Add a notification for every folder and action
+	 *
+	 * @param folders    absolute paths of the folders
+	 * @param actions    actions notified about
+	 * @param usernames  users whose actions are notified about, or constants such as {@code notice_user_all}
+	 * @param recipients email addresses notified
+	 * @param message    custom message of the emails, may be null
+	 * @param sendEmail  true to send emails
+	 * @return this spec
+	 */
+	public NotificationSpec add(Collection<String> folders, Collection<AddNotificationRequestBody.ActionEnum> actions,
+		List<String> usernames, List<String> recipients, String message, boolean sendEmail) {
+		List<String> fixedUsernames = Collections.unmodifiableList(new ArrayList<>(usernames));
+		List<String> fixedRecipients = Collections.unmodifiableList(new ArrayList<>(recipients));
+		for (String folder : folders) {
+			String path = normalize(folder);
+			for (AddNotificationRequestBody.ActionEnum action : actions) {
+				entries.put(keyOf(path, action.toString()),
+					new Entry(path, action, fixedUsernames, fixedRecipients, message, sendEmail));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Read a spec from a JSON file
+	 *
+	 * @param file the file
+	 * @return the spec
+	 * @throws IOException the file could not be read or is not a valid spec
+	 */
+	public static NotificationSpec read(Path file) throws IOException {
+		NotificationSpec spec = new NotificationSpec();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			JsonObject root = new JsonParser().parse(reader).getAsJsonObject();
+			if (!root.has("notifications")) {
+				throw new IOException("No notifications in " + file);
+			}
+			for (JsonElement element : root.getAsJsonArray("notifications")) {
+				JsonObject rule = element.getAsJsonObject();
+				List<AddNotificationRequestBody.ActionEnum> actions = new ArrayList<>();
+				for (String action : strings(rule, "actions")) {
+					AddNotificationRequestBody.ActionEnum value = AddNotificationRequestBody.ActionEnum.fromValue(action.toLowerCase(Locale.ROOT));
+					if (value == null) {
+						throw new IOException("Unknown action " + action + " in " + file);
+					}
+					actions.add(value);
+				}
+				List<String> usernames = strings(rule, "usernames");
+				spec.add(strings(rule, "folders"), actions, usernames.isEmpty() ? Collections.singletonList(USER_ALL) : usernames,
+					strings(rule, "recipients"), rule.has("message") ? rule.get("message").getAsString() : null,
+					!rule.has("sendEmail") || rule.get("sendEmail").getAsBoolean());
+			}
+		} catch (JsonParseException | IllegalStateException | ClassCastException e) {
+			throw new IOException("Invalid notification spec " + file + ": " + e.getMessage(), e);
+		}
+		return spec;
+	}
+
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	//identity of a notification: its folder and its action
+	static String keyOf(String path, String action) {
+		return path + "|" + action.toLowerCase(Locale.ROOT);
+	}
+
+	static String normalize(String path) {
+		String normalized = path.trim().replaceAll("/+", "/");
+		if (!normalized.startsWith("/")) {
+			normalized = "/" + normalized;
+		}
+		return normalized.length() > 1 && normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+	}
+
+	private static List<String> strings(JsonObject rule, String name) {
+		List<String> values = new ArrayList<>();
+		JsonArray array = rule.has(name) ? rule.getAsJsonArray(name) : new JsonArray();
+		for (JsonElement value : array) {
+			values.add(value.getAsString());
+		}
+		return values;
+	}
+}
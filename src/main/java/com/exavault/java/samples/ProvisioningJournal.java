@@ -0,0 +1,143 @@
+package com.exavault.java.samples;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Result journal of a bulk user provisioning, one line per processed row.
+ * <p>
+ * Each line holds the row number, the username, the outcome and a detail such as the new user id or the error,
+ * separated by tabs. Lines are appended as rows complete through a single writer, flushed after every row, so the
+ * journal survives a run that is stopped halfway without a disk sync per row.
+ * A later run over the same input skips the usernames already {@link Status#CREATED} or found to
+ * {@link Status#EXIST}, and only processes the rows which were invalid, failed or not reached. Once a username is
+ * created or found to exist it stays so, a later row failing for that username does not undo it.
+ * <p>
+ * There is one journal per account and input file, stored in the journal folder. It stays open until closed.
+ */
+public class ProvisioningJournal implements Closeable {
+	//default folder for the journals, relative to the working directory
+	public static final String DEFAULT_JOURNAL_DIR = ".provisioning-journal";
+	private static final String SEPARATOR = "\t";
+	private final Path file;
+	private final Map<String, Status> outcomes = new HashMap<>();
+	private Writer out;
+
+	/**
+	 * Outcome of a row
+	 */
+	public enum Status {
+		//the user was added by this journal's runs
+		CREATED,
+		//the username was already taken in the account
+		EXIST,
+		//the row did not pass the local checks
+		INVALID,
+		//addUser failed
+		FAILED
+	}
+
+	private ProvisioningJournal(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Open the journal of an input file, reading the outcomes of previous runs
+	 *
+	 * @param credential Credentials, the journal belongs to their account
+	 * @param input      the input file
+	 * @return the journal, to be closed by the caller
+	 * @throws IOException the journal could not be read or opened for writing
+	 */
+	public static ProvisioningJournal open(Credential credential, Path input) throws IOException {
+		String key = credential.getApiUrl() + "|" + input.toAbsolutePath().normalize();
+		ProvisioningJournal journal = new ProvisioningJournal(Paths.get(DEFAULT_JOURNAL_DIR, Utils.sha1Hex(key) + ".journal"));
+		if (Files.isRegularFile(journal.file)) {
+			journal.read();
+		}
+		Files.createDirectories(journal.file.getParent());
+		journal.out = Files.newBufferedWriter(journal.file, StandardCharsets.UTF_8,
+			StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+		return journal;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Whether a previous run already provisioned a username
+	 *
+	 * @param username the username
+	 * @return true if the user was created or already existed
+	 */
+	public synchronized boolean isDone(String username) {
+		Status status = outcomes.get(username.toLowerCase(Locale.ROOT));
+		return status == Status.CREATED || status == Status.EXIST;
+	}
+
+	/**
+	 * Append the outcome of a row, called from any worker
+	 *
+	 * @param row      number of the row in the input
+	 * @param username username of the row, may be null for an invalid row
+	 * @param status   the outcome
+	 * @param detail   user id, error message or reason, may be null
+	 * @throws IOException the journal could not be written
+	 */
+	public synchronized void record(int row, String username, Status status, String detail) throws IOException {
+		//flushed to the OS, a stopped run keeps the line without waiting for the disk
+		out.write(row + SEPARATOR + clean(username) + SEPARATOR + status + SEPARATOR + clean(detail) + "\n");
+		out.flush();
+		if (username != null) {
+			update(username, status);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	//the user is in the account once created or found, whatever happens to other rows of that username
+	private void update(String username, Status status) {
+		String key = username.toLowerCase(Locale.ROOT);
+		Status previous = outcomes.get(key);
+		if (previous != Status.CREATED && previous != Status.EXIST) {
+			outcomes.put(key, status);
+		}
+	}
+
+	private void read() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				//a torn last line from a crash is skipped, its row is processed again
+				String[] parts = line.split(SEPARATOR, -1);
+				if (parts.length == 4 && !parts[1].isEmpty()) {
+					try {
+						//the latest outcome of a username wins, unless the user was provisioned already
+						update(parts[1], Status.valueOf(parts[2]));
+					} catch (IllegalArgumentException e) {
+						//not a complete line
+					}
+				}
+			}
+		}
+	}
+
+	//tabs and line breaks would break the line layout
+	private static String clean(String value) {
+		return value == null ? "" : value.replaceAll("[\\t\\r\\n]+", " ");
+	}
+}
@@ -0,0 +1,116 @@
+package com.exavault.java.samples;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client side token bucket which adapts its rate to the throttling of the server.
+ * <p>
+ * Every request takes one token, tokens are refilled at the current rate and at most one second worth of them
+ * is kept. When the server answers that we are sending too many requests, the rate is halved. Every successful
+ * request then raises it again by a small step, up to the maximum rate. A bulk job therefore settles just under
+ * the rate the server accepts, instead of failing on throttling.
+ * <p>
+ * Waiting threads park on a {@link ReentrantLock} condition rather than a monitor, so a virtual thread waiting
+ * for a token does not pin its carrier thread.
+ */
+public class RateLimiter {
+	//default rate a new limiter starts at, in requests per second
+	public static final double DEFAULT_INITIAL_RATE = 20;
+	//default lowest rate the limiter backs off to
+	public static final double DEFAULT_MIN_RATE = 1;
+	//default highest rate the limiter grows to
+	public static final double DEFAULT_MAX_RATE = 100;
+	//rate added after each successful request, in requests per second
+	private static final double INCREASE_STEP = 0.1;
+	//factor applied to the rate when the server throttles us
+	private static final double DECREASE_FACTOR = 0.5;
+	private final double minRate;
+	private final double maxRate;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition refilled = lock.newCondition();
+	private double rate;
+	private double tokens;
+	private long lastRefillNanos;
+
+	public RateLimiter() {
+		this(DEFAULT_INITIAL_RATE, DEFAULT_MIN_RATE, DEFAULT_MAX_RATE);
+	}
+
+	/**
+	 * @param initialRate rate to start at, in requests per second
+	 * @param minRate     lowest rate to back off to
+	 * @param maxRate     highest rate to grow to
+	 */
+	public RateLimiter(double initialRate, double minRate, double maxRate) {
+		if (minRate <= 0 || minRate > maxRate || initialRate < minRate || initialRate > maxRate) {
+			throw new IllegalArgumentException("rates must satisfy 0 < minRate <= initialRate <= maxRate");
+		}
+		this.minRate = minRate;
+		this.maxRate = maxRate;
+		this.rate = initialRate;
+		this.tokens = 1;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * Wait until a request may be sent
+	 *
+	 * @throws InterruptedException the thread was interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			refill();
+			while (tokens < 1) {
+				long waitNanos = (long) ((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+				//awaiting releases the lock, other threads can report successes or throttling meanwhile
+				refilled.awaitNanos(Math.max(waitNanos, 1));
+				refill();
+			}
+			tokens -= 1;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//a request went through, slowly probe for a higher rate
+	public void onSuccess() {
+		lock.lock();
+		try {
+			rate = Math.min(maxRate, rate + INCREASE_STEP);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//the server throttled a request, back off
+	public void onThrottled() {
+		lock.lock();
+		try {
+			refill();
+			rate = Math.max(minRate, rate * DECREASE_FACTOR);
+			tokens = Math.min(tokens, 0);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public double getRate() {
+		lock.lock();
+		try {
+			return rate;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+		//keep at most one second worth of tokens, so an idle period does not allow a burst
+		tokens = Math.min(Math.max(rate, 1), tokens + elapsedSeconds * rate);
+		lastRefillNanos = now;
+	}
+}
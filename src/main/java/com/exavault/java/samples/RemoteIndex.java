@@ -0,0 +1,181 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceAttributes;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory index of the files below a folder of your account, keyed by full path.
+ * <p>
+ * The index is built by paging through
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operation/listResources">listResources</a>
+ * with a {@link ResourcePaginator}
+ * and keeps the id, size and last modification time of every file. A sync run uses it to upload only the
+ * local files that are missing on the server or changed since they were uploaded.
+ * <p>
+ * The index also keeps a fingerprint of every folder as it was listed, which {@link ManifestCache} compares
+ * with the current ones to list again only the folders that changed.
+ * <p>
+ * The index is safe to update from several upload workers at once.
+ */
+public class RemoteIndex {
+	static final int RESPONSE_CODE_404 = 404;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Map<String, String> folders = new ConcurrentHashMap<>();
+	private final long listedAtMillis;
+
+	public RemoteIndex() {
+		this(System.currentTimeMillis());
+	}
+
+	/**
+	 * @param listedAtMillis time the folder was listed, for an index restored from a cache
+	 */
+	public RemoteIndex(long listedAtMillis) {
+		this.listedAtMillis = listedAtMillis;
+	}
+
+	/**
+	 * What the index knows about one remote file
+	 */
+	public static class Entry {
+		private final long id;
+		private final long size;
+		private final long modifiedSeconds;
+
+		public Entry(long id, long size, long modifiedSeconds) {
+			this.id = id;
+			this.size = size;
+			this.modifiedSeconds = modifiedSeconds;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		//last modification on the server, in seconds since the epoch
+		public long getModifiedSeconds() {
+			return modifiedSeconds;
+		}
+	}
+
+	/**
+	 * List every file below {@code basePath}. A missing folder gives an empty index.
+	 *
+	 * @param resourcesApi Resource API to be used
+	 * @param credential   Credentials
+	 * @param basePath     remote folder to index
+	 * @return the index
+	 * @throws ApiException a page could not be listed
+	 */
+	public static RemoteIndex build(ResourcesApi resourcesApi, Credential credential, String basePath) throws ApiException {
+		RemoteIndex index = new RemoteIndex();
+		//Text to match resource names, the search covers the whole folder tree
+		final String name = "*";
+		try {
+			ResourcePaginator resources = new ResourcePaginator(resourcesApi, credential, basePath, "name", null, name, null,
+				ResourcePaginator.MAX_PAGE_SIZE);
+			while (resources.hasNext()) {
+				index.add(resources.next());
+			}
+		} catch (ResourcePaginator.PageException e) {
+			if (e.getApiException().getCode() != RESPONSE_CODE_404) {
+				throw e.getApiException();
+			}
+			//nothing was uploaded to this folder yet
+		}
+		return index;
+	}
+
+	/**
+	 * Add a listed resource, folders only have their fingerprint recorded
+	 *
+	 * @param resource resource returned by the API
+	 */
+	public void add(Resource resource) {
+		ResourceAttributes attributes = resource.getAttributes();
+		if (attributes == null || attributes.getPath() == null) {
+			return;
+		}
+		if (attributes.getType() == ResourceAttributes.TypeEnum.DIR) {
+			folders.put(attributes.getPath(), fingerprint(attributes));
+			return;
+		}
+		long size = attributes.getSize() != null ? attributes.getSize() : -1;
+		long modified = attributes.getUpdatedAt() != null ? attributes.getUpdatedAt().toEpochSecond() : 0;
+		entries.put(attributes.getPath(), new Entry(resource.getId(), size, modified));
+	}
+
+	public void put(String path, Entry entry) {
+		entries.put(path, entry);
+	}
+
+	public Entry get(String path) {
+		return entries.get(path);
+	}
+
+	public void putFolder(String path, String fingerprint) {
+		folders.put(path, fingerprint);
+	}
+
+	//fingerprint of a folder when it was listed, null if the index does not know it
+	public String getFolderFingerprint(String path) {
+		return folders.get(path);
+	}
+
+	//read only view of the folder fingerprints by path
+	public Map<String, String> getFolders() {
+		return Collections.unmodifiableMap(folders);
+	}
+
+	/**
+	 * Cheap summary of the state of a folder, it changes whenever files below the folder are added, removed or changed
+	 *
+	 * @param attributes attributes of the folder
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(ResourceAttributes attributes) {
+		return attributes.getSize() + "|" + attributes.getFileCount() + "|"
+			+ (attributes.getUpdatedAt() != null ? attributes.getUpdatedAt().toEpochSecond() : 0);
+	}
+
+	//read only view of the indexed files by path
+	public Map<String, Entry> getEntries() {
+		return Collections.unmodifiableMap(entries);
+	}
+
+	//time the folder was listed, updates made since then do not change it
+	public long getListedAtMillis() {
+		return listedAtMillis;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Whether a local file has to be uploaded to {@code path}: it is missing on the server,
+	 * its size differs, or it was modified locally after the server copy was written
+	 *
+	 * @param file local file
+	 * @param path destination path in the account
+	 * @return true if the file is new or changed
+	 */
+	public boolean isNewOrChanged(File file, String path) {
+		Entry entry = entries.get(path);
+		if (entry == null) {
+			return true;
+		}
+		return entry.getSize() != file.length() || file.lastModified() / 1000 > entry.getModifiedSeconds();
+	}
+}
@@ -0,0 +1,170 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceCollectionResponse;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lazy iterator over all the results of
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operation/listResources">listResources</a>.
+ * <p>
+ * listResources returns at most {@link #MAX_PAGE_SIZE} resources per call. This iterator keeps calling it with an
+ * increasing offset until {@code totalResults} is reached, and always requests the next page in the background
+ * while the caller is still consuming the current one, so listing and processing overlap.
+ * <p>
+ * Since {@link Iterator} methods cannot throw checked exceptions, a failed page is reported as a
+ * {@link PageException} wrapping the {@link ApiException}.
+ */
+public class ResourcePaginator implements Iterator<Resource> {
+	//largest page listResources returns
+	public static final int MAX_PAGE_SIZE = 100;
+	private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "resource-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final ResourcesApi resourcesApi;
+	private final Credential credential;
+	private final String resource;
+	private final String sort;
+	private final String type;
+	private final String name;
+	private final String include;
+	private final int pageSize;
+	private Iterator<Resource> current = Collections.<Resource>emptyList().iterator();
+	private Future<ResourceCollectionResponse> nextPage;
+	private int offset;
+	private Integer totalResults;
+
+	/**
+	 * Unchecked wrapper of an {@link ApiException} raised while fetching a page
+	 */
+	public static class PageException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public PageException(ApiException cause) {
+			super(cause.getMessage(), cause);
+		}
+
+		public ApiException getApiException() {
+			return (ApiException) getCause();
+		}
+	}
+
+	/**
+	 * Parameters are the ones of listResources, the first page is requested right away
+	 *
+	 * @param resourcesApi Resource API to be used
+	 * @param credential   Credentials
+	 * @param resource     resource identifier to list, path or id
+	 * @param sort         sort fields, may be null
+	 * @param type         resource type filter, may be null
+	 * @param name         text to match resource names, may be null
+	 * @param include      relationships to include, may be null
+	 * @param pageSize     number of resources per call, at most {@link #MAX_PAGE_SIZE}
+	 */
+	public ResourcePaginator(ResourcesApi resourcesApi, Credential credential, String resource, String sort,
+	                         String type, String name, String include, int pageSize) {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+		}
+		this.resourcesApi = resourcesApi;
+		this.credential = credential;
+		this.resource = resource;
+		this.sort = sort;
+		this.type = type;
+		this.name = name;
+		this.include = include;
+		this.pageSize = pageSize;
+		this.nextPage = fetch(0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext()) {
+			if (nextPage == null) {
+				return false;
+			}
+			ResourceCollectionResponse page = await(nextPage);
+			List<Resource> data = page.getData();
+			if (data == null) {
+				data = Collections.emptyList();
+			}
+			offset += data.size();
+			totalResults = page.getTotalResults();
+			//request the following page before handing out this one
+			boolean more = !data.isEmpty() && (totalResults == null || offset < totalResults);
+			nextPage = more ? fetch(offset) : null;
+			current = data.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public Resource next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return current.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	/**
+	 * Total number of matching resources as reported by the server, known once the first page arrived
+	 *
+	 * @return the total, or -1 if there are no results or the first page was not read yet
+	 */
+	public int getTotalResults() {
+		hasNext();
+		return totalResults != null ? totalResults : -1;
+	}
+
+	private Future<ResourceCollectionResponse> fetch(final int pageOffset) {
+		return PREFETCH.submit(new Callable<ResourceCollectionResponse>() {
+			@Override
+			public ResourceCollectionResponse call() throws ApiException {
+				return RetryPolicy.forAccount(credential).execute("listResources", true, new RetryPolicy.ApiCall<ResourceCollectionResponse>() {
+					@Override
+					public ResourceCollectionResponse call() throws ApiException {
+						return resourcesApi.listResources(credential.getEvApiKey(), credential.getEvAccessToken(),
+							resource, sort, pageOffset, pageSize, type, name, include);
+					}
+				});
+			}
+		});
+	}
+
+	private static ResourceCollectionResponse await(Future<ResourceCollectionResponse> page) {
+		try {
+			return page.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PageException(new ApiException(e));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ApiException) {
+				throw new PageException((ApiException) e.getCause());
+			}
+			throw new PageException(new ApiException(e.getCause()));
+		}
+	}
+}
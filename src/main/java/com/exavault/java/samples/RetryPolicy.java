@@ -0,0 +1,179 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs API calls through a {@link RateLimiter} and retries the ones that failed for a transient reason.
+ * <p>
+ * A call is retried when the server throttled it (429), failed on its side (5xx) or the connection failed.
+ * The delay between attempts grows exponentially with full jitter, and a {@code Retry-After} header from the
+ * server takes precedence when it asks for a longer wait, up to the longest delay of the policy so a worker is
+ * never held for as long as the server cares to say.
+ * <p>
+ * Only idempotent operations (listing, reading, downloading, uploads that overwrite) are retried after a
+ * server or connection error, since the first attempt may have been applied. Other operations are only
+ * retried after a 429, which the server sends before doing anything.
+ * <p>
+ * Retries are also limited by a budget: every first attempt adds a fraction of a token, every retry takes a
+ * whole one. When the server is down for good, the job fails fast instead of multiplying the load.
+ * <p>
+ * Each account (API key) and API URL has its own policy, kept in an {@link AccountMap} like the clients of
+ * {@link ApiClientRegistry}, so a tenant which is throttled never slows down the others, and the policies of
+ * accounts no longer in use are evicted the same way.
+ */
+public class RetryPolicy {
+	//default number of attempts of a call, including the first one
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+	//default delay before the first retry, in milliseconds
+	public static final long DEFAULT_BASE_DELAY_MILLIS = 200;
+	//default longest delay between two attempts, in milliseconds
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 30000;
+	//default number of retries allowed per first attempt
+	public static final double DEFAULT_BUDGET_RATIO = 0.2;
+	private static final int RESPONSE_CODE_429 = 429;
+	private static final int MAX_BUDGET = 100;
+	private static final String RETRY_AFTER = "Retry-After";
+	private static final AccountMap<RetryPolicy> ACCOUNTS = new AccountMap<RetryPolicy>(AccountMap.DEFAULT_MAX_ACCOUNTS) {
+		@Override
+		protected RetryPolicy create(Credential credential) {
+			return new RetryPolicy(new RateLimiter(), DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS,
+				DEFAULT_MAX_DELAY_MILLIS, DEFAULT_BUDGET_RATIO);
+		}
+	};
+	private final RateLimiter rateLimiter;
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	private final double budgetRatio;
+	private final Random random = new Random();
+	private double budget = MAX_BUDGET;
+
+	/**
+	 * A call to the API
+	 *
+	 * @param <T> type of the response
+	 */
+	public interface ApiCall<T> {
+		T call() throws ApiException;
+	}
+
+	/**
+	 * @param rateLimiter     limiter every attempt goes through
+	 * @param maxAttempts     number of attempts of a call, including the first one
+	 * @param baseDelayMillis delay before the first retry, in milliseconds
+	 * @param maxDelayMillis  longest delay between two attempts, in milliseconds
+	 * @param budgetRatio     number of retries allowed per first attempt
+	 */
+	public RetryPolicy(RateLimiter rateLimiter, int maxAttempts, long baseDelayMillis, long maxDelayMillis, double budgetRatio) {
+		if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis || budgetRatio < 0) {
+			throw new IllegalArgumentException("invalid retry policy settings");
+		}
+		this.rateLimiter = rateLimiter;
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.budgetRatio = budgetRatio;
+	}
+
+	/**
+	 * Get the policy shared by every call made for the account of the credential, with its own rate limiter
+	 *
+	 * @param credential Credentials
+	 * @return the policy of their account
+	 */
+	public static RetryPolicy forAccount(Credential credential) {
+		return ACCOUNTS.get(credential);
+	}
+
+	/**
+	 * Run a call, retrying it as the policy allows
+	 *
+	 * @param operation  name of the operation, used in log messages
+	 * @param idempotent whether repeating the call after it was possibly applied is harmless
+	 * @param call       the call
+	 * @param <T>        type of the response
+	 * @return the response of the first successful attempt
+	 * @throws ApiException the error of the last attempt
+	 */
+	public <T> T execute(String operation, boolean idempotent, ApiCall<T> call) throws ApiException {
+		deposit();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				rateLimiter.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ApiException(e);
+			}
+			try {
+				T result = call.call();
+				rateLimiter.onSuccess();
+				return result;
+			} catch (ApiException e) {
+				boolean throttled = e.getCode() == RESPONSE_CODE_429;
+				if (throttled) {
+					rateLimiter.onThrottled();
+				}
+				boolean retryable = throttled || (idempotent && isTransient(e));
+				if (!retryable || attempt >= maxAttempts || !withdraw()) {
+					throw e;
+				}
+				long delay = Math.max(backoff(attempt), Math.min(maxDelayMillis, retryAfterMillis(e)));
+				System.err.println(operation + " failed with status " + e.getCode() + ", retrying in " + delay + " ms");
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	//server errors, and connection failures which the client reports with a code of 0
+	private static boolean isTransient(ApiException e) {
+		return e.getCode() == 0 || e.getCode() >= 500;
+	}
+
+	//full jitter: a random delay between zero and the exponential bound
+	private long backoff(int attempt) {
+		long bound = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+		synchronized (random) {
+			return bound > 0 ? (long) (random.nextDouble() * bound) : 0;
+		}
+	}
+
+	private static long retryAfterMillis(ApiException e) {
+		Map<String, List<String>> headers = e.getResponseHeaders();
+		if (headers == null) {
+			return 0;
+		}
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (RETRY_AFTER.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+				try {
+					return TimeUnit.SECONDS.toMillis(Long.parseLong(header.getValue().get(0).trim()));
+				} catch (NumberFormatException ignored) {
+					//an HTTP date, fall back to our own backoff
+					return 0;
+				}
+			}
+		}
+		return 0;
+	}
+
+	private synchronized void deposit() {
+		budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+	}
+
+	private synchronized boolean withdraw() {
+		if (budget < 1) {
+			return false;
+		}
+		budget -= 1;
+		return true;
+	}
+}
@@ -0,0 +1,172 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.model.SessionActivityEntry;
+import com.exavault.client.model.SessionActivityEntryAttributes;
+import org.threeten.bp.Instant;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates session log entries one at a time, as the pages arrive, for brute force detection.
+ * <p>
+ * Failed operations are counted per user and per IP address with {@link KeyCounter}s, and all operations and
+ * failed ones per time bucket in plain {@code long} arrays. A {@link TopKSketch} keeps the addresses with the most
+ * failures even when there are more distinct addresses than the counters hold. No entry is kept, and memory
+ * only depends on the caps and the number of buckets, so weeks of logs can be aggregated.
+ */
+public class SessionAggregator {
+	//default largest number of users or addresses counted individually
+	public static final int DEFAULT_MAX_KEYS = 100000;
+	//default number of addresses tracked by the heavy hitter sketch
+	public static final int DEFAULT_TOP_K = 100;
+	//default width of a time bucket
+	public static final long DEFAULT_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final String FAILED = "failed";
+	private final long startMillis;
+	private final long bucketMillis;
+	private final KeyCounter failuresByUser;
+	private final KeyCounter failuresByIp;
+	private final TopKSketch topFailingIps;
+	private final long[] entriesPerBucket;
+	private final long[] failuresPerBucket;
+	private long entries;
+	private long failures;
+	private long outsideWindow;
+
+	public SessionAggregator(OffsetDateTime start, OffsetDateTime end) {
+		this(start, end, DEFAULT_BUCKET_MILLIS, DEFAULT_MAX_KEYS, DEFAULT_TOP_K);
+	}
+
+	/**
+	 * @param start        start of the window being aggregated
+	 * @param end          end of the window being aggregated
+	 * @param bucketMillis width of a time bucket
+	 * @param maxKeys      largest number of users or addresses counted individually
+	 * @param topK         number of addresses tracked by the heavy hitter sketch
+	 */
+	public SessionAggregator(OffsetDateTime start, OffsetDateTime end, long bucketMillis, int maxKeys, int topK) {
+		if (bucketMillis < 1 || end.isBefore(start)) {
+			throw new IllegalArgumentException("bucketMillis must be positive and the window must not end before it starts");
+		}
+		this.startMillis = start.toInstant().toEpochMilli();
+		this.bucketMillis = bucketMillis;
+		long windowMillis = end.toInstant().toEpochMilli() - startMillis;
+		int buckets = (int) Math.max(1, (windowMillis + bucketMillis - 1) / bucketMillis);
+		this.entriesPerBucket = new long[buckets];
+		this.failuresPerBucket = new long[buckets];
+		this.failuresByUser = new KeyCounter(maxKeys);
+		this.failuresByIp = new KeyCounter(maxKeys);
+		this.topFailingIps = new TopKSketch(topK);
+	}
+
+	/**
+	 * Add one entry to the aggregates
+	 *
+	 * @param entry the entry
+	 */
+	public void accept(SessionActivityEntry entry) {
+		SessionActivityEntryAttributes attributes = entry.getAttributes();
+		if (attributes == null) {
+			return;
+		}
+		entries++;
+		boolean failed = FAILED.equalsIgnoreCase(attributes.getStatus());
+		int bucket = bucketOf(Utils.toEpochMillis(attributes.getCreated()));
+		if (bucket >= 0) {
+			entriesPerBucket[bucket]++;
+		} else {
+			outsideWindow++;
+		}
+		if (failed) {
+			failures++;
+			if (bucket >= 0) {
+				failuresPerBucket[bucket]++;
+			}
+			failuresByUser.add(attributes.getUsername());
+			failuresByIp.add(attributes.getIpAddress());
+			topFailingIps.add(attributes.getIpAddress());
+		}
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public KeyCounter getFailuresByUser() {
+		return failuresByUser;
+	}
+
+	public KeyCounter getFailuresByIp() {
+		return failuresByIp;
+	}
+
+	public TopKSketch getTopFailingIps() {
+		return topFailingIps;
+	}
+
+	/**
+	 * Print the users and addresses with the most failures, then the failures per time bucket
+	 *
+	 * @param top number of users and addresses to print
+	 */
+	public void print(int top) {
+		System.out.println(failuresByUser.size() + " Users with failed logins: ");
+		System.out.printf("%-20s %10s%n", "Username", "Count");
+		System.out.println("===============================");
+		for (String user : failuresByUser.top(top)) {
+			System.out.printf("%-20s %10d%n", user, failuresByUser.get(user));
+		}
+		System.out.println();
+		System.out.println("Addresses with the most failed logins: ");
+		System.out.printf("%-40s %10s%n", "IP address", "Count");
+		System.out.println("===================================================");
+		final Map<String, Long> counts = new HashMap<>();
+		List<String> addresses = new ArrayList<>();
+		for (TopKSketch.Estimate estimate : topFailingIps.top(top)) {
+			//an exact count is known unless there were more addresses than counters
+			long exact = failuresByIp.get(estimate.getKey());
+			counts.put(estimate.getKey(), exact > 0 ? exact : estimate.getCount());
+			addresses.add(estimate.getKey());
+		}
+		Collections.sort(addresses, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Long.compare(counts.get(b), counts.get(a));
+			}
+		});
+		for (String address : addresses) {
+			System.out.printf("%-40s %10d%n", address, counts.get(address));
+		}
+		System.out.println();
+		System.out.println("Failed logins per period, out of " + entries + " entries (" + failures + " failed):");
+		for (int i = 0; i < entriesPerBucket.length; i++) {
+			if (entriesPerBucket[i] > 0) {
+				OffsetDateTime from = OffsetDateTime.ofInstant(Instant.ofEpochMilli(startMillis + i * bucketMillis), ZoneOffset.UTC);
+				System.out.printf("%-25s %10d / %d%n", from, failuresPerBucket[i], entriesPerBucket[i]);
+			}
+		}
+		if (outsideWindow > 0) {
+			System.out.println(outsideWindow + " entries had no usable time or fell outside of the window");
+		}
+	}
+
+	private int bucketOf(Long millis) {
+		if (millis == null || millis < startMillis) {
+			return -1;
+		}
+		long bucket = (millis - startMillis) / bucketMillis;
+		return bucket < entriesPerBucket.length ? (int) bucket : -1;
+	}
+}
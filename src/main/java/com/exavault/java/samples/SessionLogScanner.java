@@ -0,0 +1,209 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ActivityApi;
+import com.exavault.client.model.SessionActivityEntry;
+import com.exavault.client.model.SessionActivityResponse;
+import org.threeten.bp.Duration;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.temporal.ChronoUnit;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads every session log entry of a time window through
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/getSessionLogs">getSessionLogs</a>.
+ * <p>
+ * A first small request tells how many entries the window holds. A large window is then split into consecutive
+ * time slices of about {@code entriesPerSlice} entries each, and the slices are paged through in parallel.
+ * The window is first widened to whole seconds, the precision of the log dates, then each slice ends one second
+ * before the next one starts, so no entry is read twice and none falls between two slices. Entries are sorted by
+ * date within a slice, and entries logged after the end of the window cannot shift the pages being read.
+ * <p>
+ * Pages from all the slices are merged into a single {@link PageHandler}. The handler is never called by two
+ * threads at once, so it does not need to be thread safe, but pages from different slices arrive interleaved.
+ */
+public class SessionLogScanner {
+	//default number of entries per getSessionLogs call
+	public static final int DEFAULT_PAGE_SIZE = 200;
+	//default number of entries a time slice should hold
+	public static final int DEFAULT_ENTRIES_PER_SLICE = 20000;
+	//default largest number of time slices
+	public static final int DEFAULT_MAX_SLICES = 64;
+	//default number of slices read at the same time
+	public static final int DEFAULT_CONCURRENCY = 8;
+	private static final String SORT = "date";
+	private final ActivityApi activityApi;
+	private final Credential credential;
+	private final String ipAddress;
+	private final String username;
+	private final String path;
+	private final String type;
+	private final int pageSize;
+	private final int entriesPerSlice;
+	private final int maxSlices;
+	private final int concurrency;
+
+	/**
+	 * Receives the pages of entries
+	 */
+	public interface PageHandler {
+		void onPage(List<SessionActivityEntry> entries) throws IOException;
+	}
+
+	/**
+	 * Filters are the ones of getSessionLogs, null to leave them out
+	 *
+	 * @param activityApi Activity API to be used
+	 * @param credential  Credentials
+	 * @param ipAddress   IP address filter
+	 * @param username    username filter
+	 * @param path        path filter
+	 * @param type        operation type filter
+	 */
+	public SessionLogScanner(ActivityApi activityApi, Credential credential, String ipAddress, String username,
+	                         String path, String type) {
+		this(activityApi, credential, ipAddress, username, path, type, DEFAULT_PAGE_SIZE, DEFAULT_ENTRIES_PER_SLICE,
+			DEFAULT_MAX_SLICES, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param activityApi     Activity API to be used
+	 * @param credential      Credentials
+	 * @param ipAddress       IP address filter
+	 * @param username        username filter
+	 * @param path            path filter
+	 * @param type            operation type filter
+	 * @param pageSize        number of entries per call
+	 * @param entriesPerSlice number of entries a time slice should hold
+	 * @param maxSlices       largest number of time slices
+	 * @param concurrency     number of slices read at the same time
+	 */
+	public SessionLogScanner(ActivityApi activityApi, Credential credential, String ipAddress, String username,
+	                         String path, String type, int pageSize, int entriesPerSlice, int maxSlices, int concurrency) {
+		if (pageSize < 1 || entriesPerSlice < 1 || maxSlices < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("pageSize, entriesPerSlice, maxSlices and concurrency must be positive");
+		}
+		this.activityApi = activityApi;
+		this.credential = credential;
+		this.ipAddress = ipAddress;
+		this.username = username;
+		this.path = path;
+		this.type = type;
+		this.pageSize = pageSize;
+		this.entriesPerSlice = entriesPerSlice;
+		this.maxSlices = maxSlices;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Read all the entries logged between {@code start} and {@code end}, both widened to whole seconds
+	 *
+	 * @param start   start of the window
+	 * @param end     end of the window
+	 * @param handler receives the pages of entries
+	 * @return number of entries handed to {@code handler}
+	 * @throws ApiException a page could not be fetched
+	 * @throws IOException  the handler failed
+	 */
+	public long scan(OffsetDateTime start, OffsetDateTime end, final PageHandler handler) throws ApiException, IOException {
+		//with fractions of seconds kept, entries between the end of a slice and the start of the next would be lost
+		start = start.truncatedTo(ChronoUnit.SECONDS);
+		OffsetDateTime wholeEnd = end.truncatedTo(ChronoUnit.SECONDS);
+		end = wholeEnd.equals(end) ? end : wholeEnd.plusSeconds(1);
+		SessionActivityResponse probe = getSessionLogs(start, end, 0, 1);
+		int total = probe.getTotalResults() != null ? probe.getTotalResults() : 0;
+		long windowSeconds = Duration.between(start, end).getSeconds();
+		int slices = (int) Math.min(Math.min(maxSlices, Math.max(windowSeconds, 1)),
+			Math.max(1, (total + (long) entriesPerSlice - 1) / entriesPerSlice));
+		if (slices == 1) {
+			return scanSlice(start, end, handler, new AtomicReference<Exception>());
+		}
+
+		final AtomicLong scanned = new AtomicLong();
+		final AtomicReference<Exception> failure = new AtomicReference<>();
+		long sliceSeconds = (windowSeconds + slices - 1) / slices;
+		ExecutorService executor = BulkExecutors.newBulkExecutor(concurrency, slices);
+		try {
+			for (int i = 0; i < slices; i++) {
+				final OffsetDateTime sliceStart = start.plusSeconds(i * sliceSeconds);
+				if (!sliceStart.isBefore(end)) {
+					break;
+				}
+				OffsetDateTime next = sliceStart.plusSeconds(sliceSeconds);
+				final OffsetDateTime sliceEnd = next.isBefore(end) ? next.minusSeconds(1) : end;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							scanned.addAndGet(scanSlice(sliceStart, sliceEnd, handler, failure));
+						} catch (ApiException | IOException | RuntimeException e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+				});
+			}
+		} finally {
+			if (!BulkExecutors.awaitCompletion(executor)) {
+				failure.compareAndSet(null, new ApiException(new InterruptedException()));
+			}
+		}
+		rethrow(failure.get());
+		if (scanned.get() != total) {
+			System.err.println("Window reported " + total + " entries but " + scanned.get() + " were read, logs changed during the scan");
+		}
+		return scanned.get();
+	}
+
+	//page through one slice, stopping early once another slice failed
+	private long scanSlice(OffsetDateTime start, OffsetDateTime end, PageHandler handler,
+	                       AtomicReference<Exception> failure) throws ApiException, IOException {
+		long scanned = 0;
+		int offset = 0;
+		while (failure.get() == null) {
+			SessionActivityResponse page = getSessionLogs(start, end, offset, pageSize);
+			List<SessionActivityEntry> entries = page.getData() != null
+				? page.getData() : Collections.<SessionActivityEntry>emptyList();
+			if (entries.isEmpty()) {
+				break;
+			}
+			synchronized (handler) {
+				handler.onPage(entries);
+			}
+			scanned += entries.size();
+			offset += entries.size();
+			if (page.getTotalResults() != null && offset >= page.getTotalResults()) {
+				break;
+			}
+		}
+		return scanned;
+	}
+
+	private SessionActivityResponse getSessionLogs(final OffsetDateTime start, final OffsetDateTime end,
+	                                               final int offset, final int limit) throws ApiException {
+		return RetryPolicy.forAccount(credential).execute("getSessionLogs", true, new RetryPolicy.ApiCall<SessionActivityResponse>() {
+			@Override
+			public SessionActivityResponse call() throws ApiException {
+				return activityApi.getSessionLogs(credential.getEvApiKey(), credential.getEvAccessToken(),
+					start, end, ipAddress, username, path, type, offset, limit, SORT);
+			}
+		});
+	}
+
+	private static void rethrow(Exception e) throws ApiException, IOException {
+		if (e instanceof ApiException) {
+			throw (ApiException) e;
+		}
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.api.SharesApi;
+import com.exavault.client.model.AddFolderRequestBody;
+import com.exavault.client.model.AddShareRequestBody;
+import com.exavault.client.model.DeleteResourcesRequestBody;
+import com.exavault.client.model.EmptyResponse;
+import com.exavault.client.model.Resource;
+import com.exavault.client.model.ResourceAttributes;
+import com.exavault.client.model.ResourceResponse;
+import com.exavault.client.model.ShareResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
+
+/**
+ * Creates many shared folders at once: the folders, with any missing parent folders, then a share for each.
+ * <p>
+ * The folders form a tree. A folder is only created once its parent exists, but folders whose parents exist are
+ * created in parallel, so independent subtrees never wait for each other. Only the calling thread hands work to
+ * the pool from {@link BulkExecutors}: finished folders come back to it through a queue, and it then dispatches
+ * their children, or marks them skipped when the folder failed. A share is requested as soon as its folder exists.
+ * <p>
+ * A folder which cannot be added because it already exists is looked up and used, and it is never removed. When
+ * anything failed and cleanup is asked for, the shares and the folders this run created are removed again, so a
+ * batch either completes or leaves the account as it found it. Every folder and share ends with an outcome in the
+ * {@link Report}.
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/v2#operation/addFolder">addFolder</a> and
+ * <a href="https://www.exavault.com/developer/api-docs/v2#operation/addShare">addShare</a>
+ * for the details of the calls
+ */
+public class ShareProvisioner {
+	private final ResourcesApi resourcesApi;
+	private final SharesApi sharesApi;
+	private final Credential credential;
+	private final int workers;
+	private final int queueCapacity;
+
+	/**
+	 * Outcome of a folder or a share
+	 */
+	public enum Outcome {
+		CREATED,
+		//the folder was there before, it is used but never removed
+		EXISTED,
+		FAILED,
+		//a parent folder failed, nothing was attempted
+		SKIPPED,
+		//created, then removed by the cleanup
+		REMOVED
+	}
+
+	/**
+	 * Builds the share request of a folder
+	 */
+	public interface ShareRequestFactory {
+		AddShareRequestBody newRequest(String path, long folderId);
+	}
+
+	/**
+	 * Outcome of every folder and share of a batch, by path
+	 */
+	public static class Report {
+		private final Map<String, Node> nodes;
+
+		Report(Map<String, Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		//number of folders and shares which failed or were skipped
+		public int getFailures() {
+			int failures = 0;
+			for (Node node : nodes.values()) {
+				failures += isFailure(node.folder) ? 1 : 0;
+				failures += node.shared && isFailure(node.share) ? 1 : 0;
+			}
+			return failures;
+		}
+
+		public void print() {
+			System.out.printf("%-9s %-9s %-40s %s%n", "Folder", "Share", "Path", "Details");
+			for (Node node : nodes.values()) {
+				System.out.printf("%-9s %-9s %-40s %s%n", node.folder, node.shared ? node.share : "", node.path,
+					node.detail != null ? node.detail : "");
+			}
+		}
+
+		//an outcome is missing when the batch was interrupted
+		private static boolean isFailure(Outcome outcome) {
+			return outcome == null || outcome == Outcome.FAILED || outcome == Outcome.SKIPPED;
+		}
+	}
+
+	public ShareProvisioner(ResourcesApi resourcesApi, SharesApi sharesApi, Credential credential) {
+		this(resourcesApi, sharesApi, credential, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param resourcesApi  Resource API to be used
+	 * @param sharesApi     Shares API to be used
+	 * @param credential    Credentials
+	 * @param workers       number of calls made at the same time
+	 * @param queueCapacity number of calls allowed to wait for a free worker
+	 */
+	public ShareProvisioner(ResourcesApi resourcesApi, SharesApi sharesApi, Credential credential, int workers, int queueCapacity) {
+		if (workers < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("workers and queueCapacity must be positive");
+		}
+		this.resourcesApi = resourcesApi;
+		this.sharesApi = sharesApi;
+		this.credential = credential;
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Create the folders, their missing parents and a share for each folder
+	 *
+	 * @param sharePaths absolute paths of the folders to share
+	 * @param factory    builds the share request of each folder
+	 * @param cleanup    true to remove what this batch created if anything failed
+	 * @return the outcome of every folder and share
+	 */
+	public Report provision(Collection<String> sharePaths, ShareRequestFactory factory, boolean cleanup) {
+		//sorted by path, so parents come before their children
+		Map<String, Node> nodes = new TreeMap<>();
+		List<Node> roots = new ArrayList<>();
+		for (String sharePath : sharePaths) {
+			Node node = nodeOf(normalize(sharePath), nodes, roots);
+			node.shared = true;
+		}
+		BlockingQueue<Node> finished = new LinkedBlockingQueue<>();
+		ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		try {
+			int open = 0;
+			for (Node root : roots) {
+				executor.execute(newFolderTask(root, finished));
+				open++;
+			}
+			while (open > 0) {
+				Node node = finished.take();
+				open--;
+				boolean exists = node.folder == Outcome.CREATED || node.folder == Outcome.EXISTED;
+				if (exists && node.shared) {
+					executor.execute(newShareTask(node, factory));
+				} else if (node.shared) {
+					node.share = Outcome.SKIPPED;
+				}
+				for (Node child : node.children) {
+					if (exists) {
+						executor.execute(newFolderTask(child, finished));
+						open++;
+					} else {
+						skip(child);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			BulkExecutors.awaitCompletion(executor);
+		}
+		Report report = new Report(nodes);
+		if (cleanup && report.getFailures() > 0) {
+			removeCreated(nodes);
+		}
+		return report;
+	}
+
+	//build the task adding a single folder, it reports back through the queue whatever happens
+	private Runnable newFolderTask(final Node node, final BlockingQueue<Node> finished) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					addFolder(node);
+				} finally {
+					finished.add(node);
+				}
+			}
+		};
+	}
+
+	private void addFolder(final Node node) {
+		final AddFolderRequestBody requestBody = new AddFolderRequestBody();
+		requestBody.setPath(node.path);
+		try {
+			//adding a folder is not idempotent, it is only retried when the server throttled the request
+			ResourceResponse result = RetryPolicy.forAccount(credential).execute("addFolder", false, new RetryPolicy.ApiCall<ResourceResponse>() {
+				@Override
+				public ResourceResponse call() throws ApiException {
+					return resourcesApi.addFolder(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+				}
+			});
+			if (result != null && result.getData() != null) {
+				node.folderId = result.getData().getId();
+				node.folder = Outcome.CREATED;
+				return;
+			}
+			node.folder = Outcome.FAILED;
+			node.detail = "addFolder gave no folder";
+		} catch (ApiException e) {
+			//the folder may be there already, from an earlier batch or from a request which timed out
+			Resource existing = findFolder(node.path);
+			if (existing != null) {
+				node.folderId = existing.getId();
+				node.folder = Outcome.EXISTED;
+			} else {
+				node.folder = Outcome.FAILED;
+				node.detail = "addFolder: " + e.getCode() + " " + e.getMessage();
+				// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+				System.err.println("Exception when calling ResourcesApi#addFolder for " + node.path + " => \n" + Utils.customErrorResponse(e));
+			}
+		}
+	}
+
+	//build the task adding the share of a folder
+	private Runnable newShareTask(final Node node, final ShareRequestFactory factory) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				final AddShareRequestBody requestBody = factory.newRequest(node.path, node.folderId);
+				try {
+					//adding a share is not idempotent, it is only retried when the server throttled the request
+					ShareResponse result = RetryPolicy.forAccount(credential).execute("addShare", false, new RetryPolicy.ApiCall<ShareResponse>() {
+						@Override
+						public ShareResponse call() throws ApiException {
+							return sharesApi.addShare(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+						}
+					});
+					if (result != null && result.getResponseStatus() == RESPONSE_CODE_201 && result.getData() != null) {
+						node.shareId = result.getData().getId();
+						node.share = Outcome.CREATED;
+						node.detail = "share " + result.getData().getAttributes().getHash();
+					} else {
+						node.share = Outcome.FAILED;
+						node.detail = "addShare gave no share";
+					}
+				} catch (ApiException e) {
+					node.share = Outcome.FAILED;
+					node.detail = "addShare: " + e.getCode() + " " + e.getMessage();
+					// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+					System.err.println("Exception when calling SharesApi#addShare for " + node.path + " => \n" + Utils.customErrorResponse(e));
+				}
+			}
+		};
+	}
+
+	//remove the shares, then the highest folders this batch created, which takes their subfolders along
+	private void removeCreated(Map<String, Node> nodes) {
+		List<String> folders = new ArrayList<>();
+		for (final Node node : nodes.values()) {
+			if (node.share == Outcome.CREATED) {
+				try {
+					RetryPolicy.forAccount(credential).execute("deleteShareById", true, new RetryPolicy.ApiCall<EmptyResponse>() {
+						@Override
+						public EmptyResponse call() throws ApiException {
+							return sharesApi.deleteShareById(node.shareId, credential.getEvApiKey(), credential.getEvAccessToken());
+						}
+					});
+					node.share = Outcome.REMOVED;
+				} catch (ApiException e) {
+					System.err.println("Exception when calling SharesApi#deleteShareById for " + node.path + " => \n" + Utils.customErrorResponse(e));
+				}
+			}
+			if (node.folder == Outcome.CREATED && (node.parent == null || node.parent.folder != Outcome.CREATED)) {
+				folders.add("id:" + node.folderId);
+			}
+		}
+		if (folders.isEmpty()) {
+			return;
+		}
+		final DeleteResourcesRequestBody requestBody = new DeleteResourcesRequestBody();
+		requestBody.setResources(folders);
+		try {
+			RetryPolicy.forAccount(credential).execute("deleteResources", true, new RetryPolicy.ApiCall<EmptyResponse>() {
+				@Override
+				public EmptyResponse call() throws ApiException {
+					return resourcesApi.deleteResources(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+				}
+			});
+			for (Node node : nodes.values()) {
+				if (node.folder == Outcome.CREATED) {
+					node.folder = Outcome.REMOVED;
+				}
+			}
+		} catch (ApiException e) {
+			System.err.println("Exception when calling ResourcesApi#deleteResources => \n" + Utils.customErrorResponse(e));
+		}
+	}
+
+	//the folder at a path, null if there is none or it cannot be told
+	private Resource findFolder(final String path) {
+		try {
+			ResourceResponse result = RetryPolicy.forAccount(credential).execute("getResourceInfo", true, new RetryPolicy.ApiCall<ResourceResponse>() {
+				@Override
+				public ResourceResponse call() throws ApiException {
+					return resourcesApi.getResourceInfo(credential.getEvApiKey(), credential.getEvAccessToken(), path, null);
+				}
+			});
+			Resource data = result.getData();
+			return data != null && data.getAttributes() != null
+				&& data.getAttributes().getType() == ResourceAttributes.TypeEnum.DIR ? data : null;
+		} catch (ApiException e) {
+			return null;
+		}
+	}
+
+	//mark a folder and everything below it as skipped
+	private static void skip(Node node) {
+		node.folder = Outcome.SKIPPED;
+		if (node.shared) {
+			node.share = Outcome.SKIPPED;
+		}
+		for (Node child : node.children) {
+			skip(child);
+		}
+	}
+
+	//the node of a path, adding it and its missing parents to the tree
+	private static Node nodeOf(String path, Map<String, Node> nodes, List<Node> roots) {
+		Node node = nodes.get(path);
+		if (node != null) {
+			return node;
+		}
+		int slash = path.lastIndexOf('/');
+		Node parent = slash > 0 ? nodeOf(path.substring(0, slash), nodes, roots) : null;
+		node = new Node(path, parent);
+		nodes.put(path, node);
+		if (parent != null) {
+			parent.children.add(node);
+		} else {
+			roots.add(node);
+		}
+		return node;
+	}
+
+	private static String normalize(String path) {
+		String normalized = path.trim().replaceAll("/+", "/");
+		if (!normalized.startsWith("/")) {
+			normalized = "/" + normalized;
+		}
+		if (normalized.length() > 1 && normalized.endsWith("/")) {
+			normalized = normalized.substring(0, normalized.length() - 1);
+		}
+		if (normalized.equals("/")) {
+			throw new IllegalArgumentException("the root folder cannot be provisioned");
+		}
+		return normalized;
+	}
+
+	//a folder of the batch; fields are written by one task at a time and read after the queue or the pool handed it over
+	private static class Node {
+		private final String path;
+		private final Node parent;
+		private final List<Node> children = new ArrayList<>();
+		private boolean shared;
+		private volatile Outcome folder;
+		private volatile Outcome share;
+		private volatile long folderId;
+		private volatile Integer shareId;
+		private volatile String detail;
+
+		Node(String path, Node parent) {
+			this.path = path;
+			this.parent = parent;
+		}
+	}
+}
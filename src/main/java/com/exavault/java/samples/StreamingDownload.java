@@ -0,0 +1,149 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Downloads resources straight to their final location.
+ * <p>
+ * {@code ResourcesApi#download} first saves the response to a temporary file, which then has to be copied
+ * to where it is wanted, so every byte is written to disk twice and the temporary folder must be able to
+ * hold the whole download. Here the response body is streamed through NIO channels into a {@code .part}
+ * file next to the destination, which is renamed once complete.
+ * <p>
+ * The copy either uses a buffer of configurable size, or {@link FileChannel#transferFrom} which lets the
+ * JDK pick the most efficient way to fill the file.
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/V2#operation/download">download</a>
+ * for the details of the request
+ */
+public class StreamingDownload {
+	//default size of the copy buffer, in bytes
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	private static final String PART = ".part";
+	private final ResourcesApi resourcesApi;
+	private final Credential credential;
+	private final int bufferSize;
+	private final boolean transferFrom;
+
+	public StreamingDownload(ResourcesApi resourcesApi, Credential credential) {
+		this(resourcesApi, credential, DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * @param resourcesApi Resource API to be used
+	 * @param credential   Credentials
+	 * @param bufferSize   size of the copy buffer, in bytes
+	 * @param transferFrom true to copy with {@link FileChannel#transferFrom} instead of the buffer
+	 */
+	public StreamingDownload(ResourcesApi resourcesApi, Credential credential, int bufferSize, boolean transferFrom) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be positive");
+		}
+		this.resourcesApi = resourcesApi;
+		this.credential = credential;
+		this.bufferSize = bufferSize;
+		this.transferFrom = transferFrom;
+	}
+
+	/**
+	 * Download resources into {@code destination}. Several resources are zipped by the server.
+	 *
+	 * @param resources    resource identifiers to download, paths or {@code id:} identifiers
+	 * @param downloadName name of the zip file the server creates when several resources are requested
+	 * @param destination  file to write, replaced if it exists
+	 * @return number of bytes written
+	 * @throws ApiException the server refused the download
+	 * @throws IOException  the response could not be read or the file could not be written
+	 */
+	public long download(final List<String> resources, final String downloadName, Path destination) throws ApiException, IOException {
+		//only getting the response is retried, once the body is being written a failure is final
+		Response response = RetryPolicy.forAccount(credential).execute("download", true, new RetryPolicy.ApiCall<Response>() {
+			@Override
+			public Response call() throws ApiException {
+				return open(resources, downloadName);
+			}
+		});
+		ResponseBody body = response.body();
+		try {
+			Path part = destination.resolveSibling(destination.getFileName() + PART);
+			long written;
+			try (ReadableByteChannel source = Channels.newChannel(body.byteStream());
+			     FileChannel target = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				     StandardOpenOption.TRUNCATE_EXISTING)) {
+				written = transferFrom ? transferFrom(source, target) : copy(source, target);
+			} catch (IOException e) {
+				Files.deleteIfExists(part);
+				throw e;
+			}
+			Files.move(part, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return written;
+		} finally {
+			body.close();
+		}
+	}
+
+	//send the request, a failed request is reported like the generated client does
+	private Response open(List<String> resources, String downloadName) throws ApiException {
+		Call call = resourcesApi.downloadCall(credential.getEvApiKey(), credential.getEvAccessToken(),
+			resources, downloadName, null, null);
+		try {
+			Response response = call.execute();
+			if (!response.isSuccessful()) {
+				ResponseBody body = response.body();
+				try {
+					throw new ApiException(response.message(), response.code(), response.headers().toMultimap(), body.string());
+				} finally {
+					body.close();
+				}
+			}
+			return response;
+		} catch (IOException e) {
+			throw new ApiException(e);
+		}
+	}
+
+	private long copy(ReadableByteChannel source, FileChannel target) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+		long written = 0;
+		while (source.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				written += target.write(buffer);
+			}
+			buffer.clear();
+		}
+		return written;
+	}
+
+	private long transferFrom(ReadableByteChannel source, FileChannel target) throws IOException {
+		long position = 0;
+		while (true) {
+			long transferred = target.transferFrom(source, position, bufferSize);
+			if (transferred == 0) {
+				//transferFrom cannot tell the end of the stream from an empty read, check with one more read
+				ByteBuffer probe = ByteBuffer.allocate(1);
+				if (source.read(probe) == -1) {
+					return position;
+				}
+				probe.flip();
+				position += target.write(probe, position);
+			}
+			position += transferred;
+		}
+	}
+}
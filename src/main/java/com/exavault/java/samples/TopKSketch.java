@@ -0,0 +1,128 @@
+package com.exavault.java.samples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the most frequent keys of a stream in fixed memory, with the Space-Saving algorithm.
+ * <p>
+ * At most {@code k} keys are tracked. When a key that is not tracked arrives and all slots are taken, it replaces
+ * the key with the lowest count and inherits that count, which is remembered as its possible overestimation.
+ * Any key occurring more than {@code total / k} times is guaranteed to be tracked, which is what matters for
+ * spotting heavy hitters such as an address hammering the login.
+ */
+public class TopKSketch {
+	private final int k;
+	private final Map<String, Integer> slots = new HashMap<>();
+	private final String[] keys;
+	private final long[] counts;
+	private final long[] errors;
+	private long total;
+
+	/**
+	 * An estimated count
+	 */
+	public static class Estimate {
+		private final String key;
+		private final long count;
+		private final long error;
+
+		Estimate(String key, long count, long error) {
+			this.key = key;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		//upper bound of the true count
+		public long getCount() {
+			return count;
+		}
+
+		//the true count is at least count - error
+		public long getError() {
+			return error;
+		}
+	}
+
+	/**
+	 * @param k number of keys tracked
+	 */
+	public TopKSketch(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		this.k = k;
+		this.keys = new String[k];
+		this.counts = new long[k];
+		this.errors = new long[k];
+	}
+
+	/**
+	 * Count one occurrence of a key
+	 *
+	 * @param key the key, null is ignored
+	 */
+	public void add(String key) {
+		if (key == null) {
+			return;
+		}
+		total++;
+		Integer slot = slots.get(key);
+		if (slot != null) {
+			counts[slot]++;
+			return;
+		}
+		int size = slots.size();
+		if (size < k) {
+			keys[size] = key;
+			counts[size] = 1;
+			errors[size] = 0;
+			slots.put(key, size);
+			return;
+		}
+		int min = 0;
+		for (int i = 1; i < k; i++) {
+			if (counts[i] < counts[min]) {
+				min = i;
+			}
+		}
+		slots.remove(keys[min]);
+		keys[min] = key;
+		errors[min] = counts[min];
+		counts[min]++;
+		slots.put(key, min);
+	}
+
+	//number of occurrences counted
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * The tracked keys with the highest estimated counts
+	 *
+	 * @param n largest number of keys to return
+	 * @return the estimates, highest count first
+	 */
+	public List<Estimate> top(int n) {
+		List<Estimate> estimates = new ArrayList<>(slots.size());
+		for (int i = 0; i < slots.size(); i++) {
+			estimates.add(new Estimate(keys[i], counts[i], errors[i]));
+		}
+		Collections.sort(estimates, new Comparator<Estimate>() {
+			@Override
+			public int compare(Estimate a, Estimate b) {
+				return Long.compare(b.count, a.count);
+			}
+		});
+		return estimates.subList(0, Math.min(n, estimates.size()));
+	}
+}
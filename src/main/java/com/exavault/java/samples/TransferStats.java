@@ -0,0 +1,88 @@
+package com.exavault.java.samples;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe counters for a bulk transfer run.
+ * <p>
+ * Workers record every finished or failed transfer, and the summary line reports
+ * the throughput of the whole run in files per second and megabytes per second.
+ */
+public class TransferStats {
+	private static final double BYTES_PER_MB = 1024d * 1024d;
+	private final AtomicLong files = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final long startNanos;
+	private volatile long endNanos;
+
+	public TransferStats() {
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Record a successfully transferred file
+	 *
+	 * @param size number of bytes transferred for this file
+	 */
+	public void recordSuccess(long size) {
+		files.incrementAndGet();
+		bytes.addAndGet(size);
+	}
+
+	//record a file which could not be transferred
+	public void recordFailure() {
+		failures.incrementAndGet();
+	}
+
+	//record a file which did not need to be transferred
+	public void recordSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	//mark the end of the run, the elapsed time is frozen from this point on
+	public void finish() {
+		endNanos = System.nanoTime();
+	}
+
+	public long getFiles() {
+		return files.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	public double getElapsedSeconds() {
+		long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return (end - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	public double getFilesPerSecond() {
+		double seconds = getElapsedSeconds();
+		return seconds > 0 ? getFiles() / seconds : 0;
+	}
+
+	public double getMegabytesPerSecond() {
+		double seconds = getElapsedSeconds();
+		return seconds > 0 ? getBytes() / BYTES_PER_MB / seconds : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%d files (%.2f MB) in %.2f s, %d skipped, %d failed: %.2f files/s, %.2f MB/s",
+			getFiles(), getBytes() / BYTES_PER_MB, getElapsedSeconds(), getSkipped(), getFailures(),
+			getFilesPerSecond(), getMegabytesPerSecond());
+	}
+}
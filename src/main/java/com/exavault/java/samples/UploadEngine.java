@@ -0,0 +1,199 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiException;
+import com.exavault.client.api.ResourcesApi;
+import com.exavault.client.model.ResourceResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
+
+/**
+ * Uploads a whole local directory tree to your account using a bounded pool of workers.
+ * <p>
+ * Files are handed to the workers while the tree is being walked. The work queue has a fixed capacity,
+ * and once it is full the walking thread uploads the next file itself, so the walk can never run far
+ * ahead of the uploads (back-pressure). The pool comes from {@link BulkExecutors}, which can run the
+ * uploads on virtual threads instead.
+ * <p>
+ * Files larger than {@link ChunkedUpload#DEFAULT_CHUNK_SIZE} are sent range by range with a {@link ChunkedUpload},
+ * so an interrupted run picks them up where it stopped.
+ * <p>
+ * Independently of the pool size, the number of uploads in flight against one API host is capped.
+ * The cap is shared by every engine in the JVM talking to that host. On virtual threads the default cap is their
+ * concurrency, see {@link BulkExecutors#getVirtualConcurrency()}.
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/uploadFile">uploadFile</a>
+ * for the details of the upload call
+ */
+public class UploadEngine {
+	//default number of concurrent uploads against a single API host
+	public static final int DEFAULT_MAX_PER_HOST = 8;
+	private static final ConcurrentMap<String, Semaphore> HOST_PERMITS = new ConcurrentHashMap<>();
+
+	private final ResourcesApi resourcesApi;
+	private final Credential credential;
+	private final int workers;
+	private final int queueCapacity;
+	private final Semaphore hostPermits;
+	private final ChunkedUpload chunkedUpload;
+
+	public UploadEngine(ResourcesApi resourcesApi, Credential credential) {
+		//on virtual threads the per-host cap follows their concurrency, otherwise it would hold them back to a handful
+		this(resourcesApi, credential, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY, BulkExecutors.getConcurrency(DEFAULT_MAX_PER_HOST));
+	}
+
+	/**
+	 * @param resourcesApi  Resource API to be used
+	 * @param credential    Credentials
+	 * @param workers       number of upload threads
+	 * @param queueCapacity number of files allowed to wait for a free worker
+	 * @param maxPerHost    number of uploads allowed in flight against the API host of the credential
+	 */
+	public UploadEngine(ResourcesApi resourcesApi, Credential credential, int workers, int queueCapacity, int maxPerHost) {
+		if (workers < 1 || queueCapacity < 1 || maxPerHost < 1) {
+			throw new IllegalArgumentException("workers, queueCapacity and maxPerHost must be positive");
+		}
+		this.resourcesApi = resourcesApi;
+		this.credential = credential;
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+		this.hostPermits = getHostPermits(hostOf(credential.getApiUrl()), maxPerHost);
+		this.chunkedUpload = new ChunkedUpload(resourcesApi.getApiClient(), credential);
+	}
+
+	/**
+	 * Upload every regular file below {@code localRoot}, keeping the relative layout below {@code remoteBase}
+	 *
+	 * @param localRoot  local folder to upload
+	 * @param remoteBase destination folder in the account
+	 * @return the transfer statistics of this run
+	 * @throws IOException the local tree could not be walked
+	 */
+	public TransferStats uploadTree(Path localRoot, String remoteBase) throws IOException {
+		return uploadTree(new LocalTreeWalker(localRoot), remoteBase);
+	}
+
+	/**
+	 * Upload every file the walker finds, keeping the relative layout below {@code remoteBase}.
+	 * Uploads start as soon as the first file is found.
+	 *
+	 * @param walker     walker over the local folder, with its include and exclude patterns
+	 * @param remoteBase destination folder in the account
+	 * @return the transfer statistics of this run
+	 * @throws IOException the local tree could not be walked
+	 */
+	public TransferStats uploadTree(LocalTreeWalker walker, String remoteBase) throws IOException {
+		return run(walker, remoteBase, null);
+	}
+
+	/**
+	 * Upload only the files the walker finds which are new or changed compared to {@code index}.
+	 * Changed files replace their server copy instead of being uploaded under a new name.
+	 *
+	 * @param walker     walker over the local folder, with its include and exclude patterns
+	 * @param remoteBase destination folder in the account
+	 * @param index      index of the files already below {@code remoteBase}
+	 * @return the transfer statistics of this run, unchanged files are counted as skipped
+	 * @throws IOException the local tree could not be walked
+	 */
+	public TransferStats sync(LocalTreeWalker walker, String remoteBase, RemoteIndex index) throws IOException {
+		return run(walker, remoteBase, index);
+	}
+
+	private TransferStats run(LocalTreeWalker walker, final String remoteBase, final RemoteIndex index) throws IOException {
+		final TransferStats stats = new TransferStats();
+		final ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		try {
+			walker.walk(new LocalTreeWalker.FileHandler() {
+				@Override
+				public void onFile(Path file, String relativePath, BasicFileAttributes attrs) {
+					String path = remoteBase + "/" + relativePath;
+					if (index != null && !index.isNewOrChanged(file.toFile(), path)) {
+						stats.recordSkipped();
+					} else {
+						executor.execute(newUploadTask(file, path, index, stats));
+					}
+				}
+			});
+		} finally {
+			BulkExecutors.awaitCompletion(executor);
+			stats.finish();
+		}
+		return stats;
+	}
+
+	//build the task uploading a single file
+	private Runnable newUploadTask(final Path file, final String path, final RemoteIndex index, final TransferStats stats) {
+		//a sync replaces changed files, a plain upload never overwrites
+		final boolean allowOverwrite = index != null;
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					hostPermits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					stats.recordFailure();
+					return;
+				}
+				try {
+					long size = file.toFile().length();
+					ResourceResponse result = size > ChunkedUpload.DEFAULT_CHUNK_SIZE
+						? chunkedUpload.upload(file.toFile(), path, allowOverwrite)
+						: Utils.uploadFile(resourcesApi, credential, file.toFile(), path, allowOverwrite);
+					if (result != null && result.getResponseStatus() == RESPONSE_CODE_201) {
+						stats.recordSuccess(size);
+						if (index != null && result.getData() != null) {
+							//keep the index current, it may be saved for the next sync
+							index.add(result.getData());
+						}
+						System.out.println("Uploaded " + path);
+					} else {
+						stats.recordFailure();
+					}
+				} catch (ApiException e) {
+					stats.recordFailure();
+					// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+					System.err.println("Exception when calling ResourcesApi#uploadFile for " + path + " => \n" + Utils.customErrorResponse(e));
+				} catch (IOException e) {
+					stats.recordFailure();
+					System.err.println("Exception when reading " + file + " => \n" + Utils.customErrorResponse(e));
+				} finally {
+					hostPermits.release();
+				}
+			}
+		};
+	}
+
+	private static Semaphore getHostPermits(String host, int maxPerHost) {
+		Semaphore permits = HOST_PERMITS.get(host);
+		if (permits == null) {
+			Semaphore created = new Semaphore(maxPerHost);
+			permits = HOST_PERMITS.putIfAbsent(host, created);
+			if (permits == null) {
+				permits = created;
+			}
+		}
+		return permits;
+	}
+
+	private static String hostOf(String apiUrl) {
+		if (apiUrl == null) {
+			return "";
+		}
+		try {
+			String host = URI.create(apiUrl).getHost();
+			return host != null ? host : apiUrl;
+		} catch (IllegalArgumentException e) {
+			return apiUrl;
+		}
+	}
+}
@@ -3,15 +3,15 @@ package com.exavault.java.samples;
 import com.exavault.client.ApiClient;
 import com.exavault.client.ApiException;
 import com.exavault.client.api.ResourcesApi;
-import com.exavault.client.model.ResourceResponse;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
-import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
 import static com.exavault.java.samples.Utils.BASE_PATH;
-import static com.exavault.java.samples.Utils.getAllLocalFiles;
 import static com.exavault.java.samples.Utils.customErrorResponse;
-import static com.exavault.java.samples.Utils.uploadFile;
+import static com.exavault.java.samples.Utils.getLocalFolder;
 
 /**
  * To use this sample, add your credentials to a file named {@code credentials.properties} which is located in {@code resources} folder at root level of your project.
@@ -37,47 +37,96 @@ import static com.exavault.java.samples.Utils.uploadFile;
  * This example uses the {@link com.exavault.client.api.ResourcesApi} to upload a file to your account
  * <p>
  * We are demonstrating the use of the ResourcesApi, which can be used to manage upload and folders in your account
- * For this demo, we'll upload a file found in <i>{@code /resources/upload}</i> folder inside this project. There are parameters to control
- * whether upload can be overwritten by repeated uploads
+ * For this demo, we'll upload the files found in <i>{@code /resources/upload}</i> folder inside this project, or in the
+ * folder passed as argument. Sub folders are uploaded as well, and several files are uploaded at the same time.
+ * Uploads start while the folder is still being read, so very large folders start uploading right away.
+ * Files can be filtered with {@code --include=GLOB} and {@code --exclude=GLOB} arguments.
+ * <p>
+ * With {@code --sync --target=/some/folder}, the files already in the target folder are listed first, and only new
+ * or changed files are uploaded. Changed files replace their previous version. The listing is kept in a local
+ * manifest cache, and is only repeated when the target folder changed or the manifest expired.
+ * There are parameters to control whether upload can be overwritten by repeated uploads
  * <p>An example output of this program would look like this:</p>
  * <pre>
- * Uploaded /Quick_1321256739 Start1604022386.pdf
+ * Uploaded /Quick_1321256739/dog.jpg
+ * Uploaded /Quick_1321256739/closeup_dog.jpg
+ * Uploaded 2 files (0.35 MB) in 1.20 s, 0 skipped, 0 failed: 1.67 files/s, 0.29 MB/s
  * </pre>
  */
 public class UploadFiles {
+	private static final String INCLUDE = "--include=";
+	private static final String EXCLUDE = "--exclude=";
+	private static final String TARGET = "--target=";
+	private static final String SYNC = "--sync";
+
 	public static void main(String[] args) {
 		//Construct ApiClient and Credentials from evAccessToken, evApiKey and apiUrl
 		ApiClient apiClient = ApiClientHelper.initApiClient();
 		Credential credential = ApiClientHelper.getCredential();
 		ResourcesApi resourcesApi = new ResourcesApi(apiClient);
+		/*
+		 * Arguments are optional:
+		 * --include=GLOB only uploads files matching the glob, can be repeated
+		 * --exclude=GLOB skips files and folders matching the glob, can be repeated
+		 * --target=PATH uploads below PATH in the account instead of a new random folder
+		 * --sync only uploads files which are missing in the target folder or changed since their last upload
+		 * any other argument replaces the bundled upload folder with a local folder
+		 */
+		File folder = getLocalFolder();
+		String target = BASE_PATH;
+		boolean sync = false;
+		List<String> includes = new ArrayList<>();
+		List<String> excludes = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith(INCLUDE)) {
+				includes.add(arg.substring(INCLUDE.length()));
+			} else if (arg.startsWith(EXCLUDE)) {
+				excludes.add(arg.substring(EXCLUDE.length()));
+			} else if (arg.startsWith(TARGET)) {
+				target = arg.substring(TARGET.length());
+			} else if (arg.equals(SYNC)) {
+				sync = true;
+			} else {
+				folder = new File(arg);
+			}
+		}
+		if (folder == null || !folder.isDirectory()) {
+			System.out.println("Found no folder to upload");
+			return;
+		}
+		LocalTreeWalker walker = new LocalTreeWalker(folder.toPath());
+		for (String include : includes) {
+			walker.include(include);
+		}
+		for (String exclude : excludes) {
+			walker.exclude(exclude);
+		}
+		/*
+		 * The UploadEngine walks the whole folder tree and calls the uploadFile method of the ResourcesApi
+		 * from a pool of workers, keeping the layout of the local folder below BASE_PATH
+		 */
+		UploadEngine engine = new UploadEngine(resourcesApi, credential);
 		try {
-			File[] files = getAllLocalFiles();
-			if (files != null && files.length > 0) {
-				for (File file : files) {
-					//upload only files, no directories
-					if (file.isFile()) {
-						ResourceResponse result = uploadFile(resourcesApi, credential, file);
-						if (result != null) {
-							validateAndPrintResponse(result, file.getName());
-						}
-					}
-				}
+			TransferStats stats;
+			if (sync) {
+				/*
+				 * Get what is already in the target folder, so unchanged files are not uploaded again.
+				 * The manifest cache only lists again the folders which changed since the previous sync
+				 */
+				ManifestCache cache = new ManifestCache();
+				RemoteIndex index = cache.load(resourcesApi, credential, target);
+				System.out.println("Found " + index.size() + " files in " + target);
+				stats = engine.sync(walker, target, index);
+				cache.save(credential, target, index);
+			} else {
+				stats = engine.uploadTree(walker, target);
 			}
+			System.out.println("Uploaded " + stats);
 		} catch (ApiException e) {
 			// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
-			System.err.println("Exception when calling ResourcesApi#uploadFile => \n" + Utils.customErrorResponse(e));
-		}
-	}
-
-	/**
-	 * Validate the response code and print the uploaded file's name
-	 *
-	 * @param result   Response object
-	 * @param fileName filename uploaded
-	 */
-	private static void validateAndPrintResponse(ResourceResponse result, String fileName) {
-		if (result.getResponseStatus() == RESPONSE_CODE_201) {
-			System.out.println("Uploaded " + BASE_PATH + "/" + fileName);
+			System.err.println("Exception when reading the target folder => \n" + Utils.customErrorResponse(e));
+		} catch (IOException e) {
+			System.err.println("Exception when reading local folder => \n" + customErrorResponse(e));
 		}
 	}
 }
@@ -0,0 +1,113 @@
+package com.exavault.java.samples;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Local checkpoint journal of a chunked upload.
+ * <p>
+ * The first line identifies the upload (local file, size, last modified time and destination path).
+ * Every acknowledged chunk then appends the offset up to which the server has the file.
+ * A journal whose first line does not match the local file any more is ignored, because the
+ * bytes already on the server no longer belong to that file.
+ * <p>
+ * A journal is a small append only text file, one per local file and destination, stored in the journal folder.
+ */
+public class UploadJournal {
+	private static final String HEADER = "upload ";
+	private static final String ACK = "ack ";
+	private final Path journalFile;
+	private final String header;
+	private long acknowledged;
+	private String remotePath;
+
+	private UploadJournal(Path journalFile, String header, String remotePath) {
+		this.journalFile = journalFile;
+		this.header = header;
+		this.remotePath = remotePath;
+	}
+
+	/**
+	 * Open the journal of the given upload, reading any previous progress
+	 *
+	 * @param journalDir folder holding the journals
+	 * @param file       local file being uploaded
+	 * @param path       requested destination path
+	 * @return the journal, positioned at the last acknowledged offset
+	 * @throws IOException the journal could not be read
+	 */
+	public static UploadJournal open(File journalDir, File file, String path) throws IOException {
+		Files.createDirectories(journalDir.toPath());
+		String header = HEADER + file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "|" + path;
+		Path journalFile = journalDir.toPath().resolve(Utils.sha1Hex(header) + ".journal");
+		UploadJournal journal = new UploadJournal(journalFile, header, path);
+		if (Files.exists(journalFile)) {
+			journal.read();
+		}
+		return journal;
+	}
+
+	//offset up to which the server acknowledged the file
+	public long getAcknowledged() {
+		return acknowledged;
+	}
+
+	//destination path the server gave the file, it may differ from the requested one if the name was taken
+	public String getRemotePath() {
+		return remotePath;
+	}
+
+	/**
+	 * Persist the acknowledgment of a chunk
+	 *
+	 * @param offset     offset up to which the server now has the file
+	 * @param remotePath path the server stored the file at
+	 * @throws IOException the journal could not be written
+	 */
+	public void acknowledge(long offset, String remotePath) throws IOException {
+		boolean first = !Files.exists(journalFile);
+		try (Writer out = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+			StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.DSYNC)) {
+			if (first) {
+				out.write(header + "\n");
+			}
+			out.write(ACK + offset + " " + remotePath + "\n");
+		}
+		this.acknowledged = offset;
+		this.remotePath = remotePath;
+	}
+
+	//the upload completed, forget about it
+	public void delete() throws IOException {
+		Files.deleteIfExists(journalFile);
+	}
+
+	private void read() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (!header.equals(line)) {
+				//the local file changed since the journal was written, start over
+				Files.delete(journalFile);
+				return;
+			}
+			while ((line = reader.readLine()) != null) {
+				//a torn last line from a crash is skipped, the previous acknowledgment is still valid
+				int space = line.indexOf(' ', ACK.length());
+				if (line.startsWith(ACK) && space != -1) {
+					try {
+						acknowledged = Long.parseLong(line.substring(ACK.length(), space));
+						remotePath = line.substring(space + 1);
+					} catch (NumberFormatException e) {
+						break;
+					}
+				}
+			}
+		}
+	}
+}
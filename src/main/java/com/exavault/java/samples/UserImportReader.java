@@ -0,0 +1,175 @@
+package com.exavault.java.samples;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the users to provision from a file, one row at a time.
+ * <p>
+ * A {@code .csv} file has a header row naming the columns. Any other file is read as JSON: either an array of
+ * objects or one object per line. Column and property names are the same, such as {@code username}, {@code email}
+ * or {@code home_resource}, and JSON arrays of text (for {@code permissions}) are joined with commas. Rows are read
+ * as they are asked for, so the file is never loaded whole.
+ */
+public class UserImportReader implements Closeable {
+	private static final String CSV_EXTENSION = ".csv";
+	private final CsvReader csv;
+	private final List<String> header;
+	private final JsonReader json;
+	private boolean inArray;
+	private int number;
+
+	/**
+	 * A row of the input
+	 */
+	public static class Row {
+		private final int number;
+		private final Map<String, String> fields;
+
+		Row(int number, Map<String, String> fields) {
+			this.number = number;
+			this.fields = fields;
+		}
+
+		//position of the row in the input, starting at 1
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * Value of a field
+		 *
+		 * @param name name of the column
+		 * @return the trimmed value, null if it is missing or empty
+		 */
+		public String get(String name) {
+			String value = fields.get(name);
+			return value == null || value.trim().isEmpty() ? null : value.trim();
+		}
+	}
+
+	private UserImportReader(CsvReader csv, List<String> header, JsonReader json) {
+		this.csv = csv;
+		this.header = header;
+		this.json = json;
+	}
+
+	/**
+	 * Open an input file, its format is told by its extension
+	 *
+	 * @param file the CSV or JSON file
+	 * @return the reader, to be closed by the caller
+	 * @throws IOException the file could not be opened, or it is a CSV file without header row
+	 */
+	public static UserImportReader open(Path file) throws IOException {
+		BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(CSV_EXTENSION)) {
+			CsvReader csv = new CsvReader(reader);
+			List<String> header = csv.readRecord();
+			if (header == null) {
+				csv.close();
+				throw new IOException("No header row in " + file);
+			}
+			for (int i = 0; i < header.size(); i++) {
+				header.set(i, header.get(i).trim().toLowerCase(Locale.ROOT));
+			}
+			return new UserImportReader(csv, header, null);
+		}
+		JsonReader json = new JsonReader(reader);
+		//lenient mode reads several top level objects, one per line
+		json.setLenient(true);
+		return new UserImportReader(null, null, json);
+	}
+
+	/**
+	 * Read the next row
+	 *
+	 * @return the row, null at the end of the input
+	 * @throws IOException the input could not be read or is malformed
+	 */
+	public Row next() throws IOException {
+		return csv != null ? nextCsv() : nextJson();
+	}
+
+	private Row nextCsv() throws IOException {
+		List<String> record;
+		do {
+			record = csv.readRecord();
+			if (record == null) {
+				return null;
+			}
+			//blank lines are not rows
+		} while (record.size() == 1 && record.get(0).trim().isEmpty());
+		Map<String, String> fields = new HashMap<>();
+		for (int i = 0; i < header.size() && i < record.size(); i++) {
+			fields.put(header.get(i), record.get(i));
+		}
+		return new Row(++number, fields);
+	}
+
+	private Row nextJson() throws IOException {
+		if (json.peek() == JsonToken.BEGIN_ARRAY && !inArray) {
+			json.beginArray();
+			inArray = true;
+		}
+		if (inArray && !json.hasNext()) {
+			json.endArray();
+			inArray = false;
+		}
+		if (json.peek() == JsonToken.END_DOCUMENT) {
+			return null;
+		}
+		Map<String, String> fields = new HashMap<>();
+		json.beginObject();
+		while (json.hasNext()) {
+			String name = json.nextName().toLowerCase(Locale.ROOT);
+			switch (json.peek()) {
+				case NULL:
+					json.nextNull();
+					break;
+				case BOOLEAN:
+					fields.put(name, Boolean.toString(json.nextBoolean()));
+					break;
+				case BEGIN_ARRAY:
+					StringBuilder values = new StringBuilder();
+					json.beginArray();
+					while (json.hasNext()) {
+						if (values.length() > 0) {
+							values.append(',');
+						}
+						values.append(json.nextString());
+					}
+					json.endArray();
+					fields.put(name, values.toString());
+					break;
+				case BEGIN_OBJECT:
+					throw new IOException("Unexpected object for " + name + " in row " + (number + 1));
+				default:
+					//strings and numbers
+					fields.put(name, json.nextString());
+			}
+		}
+		json.endObject();
+		return new Row(++number, fields);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (csv != null) {
+			csv.close();
+		} else {
+			json.close();
+		}
+	}
+}
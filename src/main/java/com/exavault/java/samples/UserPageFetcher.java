@@ -0,0 +1,154 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiClient;
+import com.exavault.client.ApiException;
+import com.exavault.client.api.UsersApi;
+import com.exavault.client.model.User;
+import com.exavault.client.model.UserCollectionResponse;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Fetches every user of the account through
+ * <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/listUsers">listUsers</a>, several pages at a time.
+ * <p>
+ * The first page tells how many users there are. The remaining offsets are then requested through the
+ * {@link AsyncApi}, keeping up to {@code concurrency} pages in flight. Pages are handed to the caller in offset
+ * order as soon as they and all the pages before them have arrived, so at most a window of pages is held in
+ * memory, however many users the account has.
+ * <p>
+ * Users are sorted by username, which is unique, so that pages requested independently neither overlap nor miss
+ * users. A page whose asynchronous request failed is requested again through the {@link RetryPolicy}.
+ */
+public class UserPageFetcher {
+	//default number of users per listUsers call
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	//default number of pages requested at the same time
+	public static final int DEFAULT_CONCURRENCY = 8;
+	private static final String SORT = "username";
+	private final UsersApi usersApi;
+	private final AsyncApi asyncApi;
+	private final Credential credential;
+	private final String include;
+	private final int pageSize;
+	private final int concurrency;
+
+	/**
+	 * Receives the pages of users, in order
+	 */
+	public interface PageHandler {
+		void onPage(List<User> users) throws IOException;
+	}
+
+	public UserPageFetcher(ApiClient apiClient, Credential credential, String include) {
+		this(apiClient, credential, include, DEFAULT_PAGE_SIZE, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param apiClient   client used for the requests
+	 * @param credential  Credentials
+	 * @param include     relationships to include, may be null
+	 * @param pageSize    number of users per call
+	 * @param concurrency number of pages requested at the same time
+	 */
+	public UserPageFetcher(ApiClient apiClient, Credential credential, String include, int pageSize, int concurrency) {
+		if (pageSize < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("pageSize and concurrency must be positive");
+		}
+		this.usersApi = new UsersApi(apiClient);
+		this.asyncApi = new AsyncApi(apiClient, credential);
+		this.credential = credential;
+		this.include = include;
+		this.pageSize = pageSize;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Fetch all the users and hand them to {@code handler} page by page
+	 *
+	 * @param handler receives the pages, in order, on the calling thread
+	 * @return number of users handed to {@code handler}
+	 * @throws ApiException a page could not be fetched
+	 * @throws IOException  the handler failed
+	 */
+	public int fetchAll(PageHandler handler) throws ApiException, IOException {
+		UserCollectionResponse first = listUsers(0, pageSize);
+		List<User> data = dataOf(first);
+		int total = first.getTotalResults() != null ? first.getTotalResults() : data.size();
+		handler.onPage(data);
+		int fetched = data.size();
+		if (data.isEmpty()) {
+			return fetched;
+		}
+
+		//the server may cap the page size below ours, a full first page tells the size it really uses
+		int step = data.size();
+		//the window of pages in flight, in offset order
+		Deque<Page> window = new ArrayDeque<>();
+		int nextOffset = step;
+		try {
+			while (nextOffset < total || !window.isEmpty()) {
+				while (nextOffset < total && window.size() < concurrency) {
+					window.addLast(new Page(nextOffset, step, asyncApi.listUsers(nextOffset, step, SORT, include)));
+					nextOffset += step;
+				}
+				Page page = window.removeFirst();
+				List<User> users = dataOf(await(page));
+				handler.onPage(users);
+				fetched += users.size();
+			}
+		} finally {
+			//a failure leaves requests in flight, their results are no longer wanted
+			for (Page page : window) {
+				page.future.cancel(true);
+			}
+		}
+		if (fetched != total) {
+			System.err.println("Account reported " + total + " users but " + fetched + " were listed, it changed during the export");
+		}
+		return fetched;
+	}
+
+	private UserCollectionResponse await(Page page) throws ApiException {
+		try {
+			return page.future.join();
+		} catch (ApiException e) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw e;
+			}
+			//the asynchronous calls are not retried, give the page another chance through the retry policy
+			return listUsers(page.offset, page.limit);
+		}
+	}
+
+	private UserCollectionResponse listUsers(final int offset, final int limit) throws ApiException {
+		return RetryPolicy.forAccount(credential).execute("listUsers", true, new RetryPolicy.ApiCall<UserCollectionResponse>() {
+			@Override
+			public UserCollectionResponse call() throws ApiException {
+				return usersApi.listUsers(credential.getEvApiKey(), credential.getEvAccessToken(), null, null,
+					null, null, null, null, null, offset, SORT, limit, include);
+			}
+		});
+	}
+
+	private static List<User> dataOf(UserCollectionResponse response) {
+		return response.getData() != null ? response.getData() : Collections.<User>emptyList();
+	}
+
+	//a page in flight
+	private static class Page {
+		private final int offset;
+		private final int limit;
+		private final ApiFuture<UserCollectionResponse> future;
+
+		Page(int offset, int limit, ApiFuture<UserCollectionResponse> future) {
+			this.offset = offset;
+			this.limit = limit;
+			this.future = future;
+		}
+	}
+}
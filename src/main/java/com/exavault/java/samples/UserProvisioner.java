@@ -0,0 +1,374 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.ApiClient;
+import com.exavault.client.ApiException;
+import com.exavault.client.api.UsersApi;
+import com.exavault.client.model.AddUserRequestBody;
+import com.exavault.client.model.User;
+import com.exavault.client.model.UserCollectionResponse;
+import com.exavault.client.model.UserResponse;
+import com.exavault.client.model.UsersPermissions;
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.ZoneId;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static com.exavault.java.samples.AddNotification.RESPONSE_CODE_201;
+
+/**
+ * Adds many users to the account from a {@link UserImportReader}, several at a time.
+ * <p>
+ * Before any user is added, the usernames already in the account are listed into memory with a
+ * {@link UserPageFetcher}. Each row is then checked locally, and rows which are invalid, repeat a username of the
+ * input or name an existing user never reach the server. The others are added by a bounded pool of workers from
+ * {@link BulkExecutors}; once its queue is full the reading thread adds the next user itself, so the input is read
+ * no faster than users are added.
+ * <p>
+ * Adding a user is not idempotent, so {@link RetryPolicy} only retries it when the server throttled the call. When
+ * a call fails anyway, the username is looked up again: a request which timed out may still have added the user.
+ * Every outcome is appended to a {@link ProvisioningJournal}, and a rerun only processes the rows which did not
+ * succeed.
+ * <p>
+ * See <a href="https://www.exavault.com/developer/api-docs/V2#operatiom/addUser">addUser</a>
+ * for the details of the add call
+ */
+public class UserProvisioner {
+	//permissions of a row without a permissions column, the same as a user made by CreateUser
+	static final String DEFAULT_PERMISSIONS = "download,upload,modify,delete";
+	private static final String DEFAULT_TIME_ZONE = "UTC";
+	private static final int MIN_PASSWORD_LENGTH = 8;
+	private static final Pattern USERNAME = Pattern.compile("[^\\s/\\\\]+");
+	private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+	private final ApiClient apiClient;
+	private final UsersApi usersApi;
+	private final Credential credential;
+	private final int workers;
+	private final int queueCapacity;
+
+	/**
+	 * Outcome counts of a run
+	 */
+	public static class Summary {
+		private final AtomicInteger created = new AtomicInteger();
+		private final AtomicInteger existing = new AtomicInteger();
+		private final AtomicInteger skipped = new AtomicInteger();
+		private final AtomicInteger invalid = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+
+		public int getCreated() {
+			return created.get();
+		}
+
+		//rows naming a user which already existed
+		public int getExisting() {
+			return existing.get();
+		}
+
+		//rows a previous run already provisioned
+		public int getSkipped() {
+			return skipped.get();
+		}
+
+		public int getInvalid() {
+			return invalid.get();
+		}
+
+		public int getFailed() {
+			return failed.get();
+		}
+
+		@Override
+		public String toString() {
+			return created + " created, " + existing + " already existed, " + skipped + " done by a previous run, "
+				+ invalid + " invalid, " + failed + " failed";
+		}
+	}
+
+	public UserProvisioner(ApiClient apiClient, Credential credential) {
+		this(apiClient, credential, BulkExecutors.DEFAULT_WORKERS, BulkExecutors.DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param apiClient     client used for the requests
+	 * @param credential    Credentials
+	 * @param workers       number of users added at the same time
+	 * @param queueCapacity number of rows allowed to wait for a free worker
+	 */
+	public UserProvisioner(ApiClient apiClient, Credential credential, int workers, int queueCapacity) {
+		if (workers < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("workers and queueCapacity must be positive");
+		}
+		this.apiClient = apiClient;
+		this.usersApi = new UsersApi(apiClient);
+		this.credential = credential;
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Add the users of every row which a previous run did not provision
+	 *
+	 * @param reader  the rows
+	 * @param journal journal of the input, records the outcome of every row processed
+	 * @return the outcome counts
+	 * @throws ApiException the existing users could not be listed, no user was added
+	 * @throws IOException  the input could not be read or the journal could not be written
+	 */
+	public Summary provision(UserImportReader reader, final ProvisioningJournal journal) throws ApiException, IOException {
+		final Summary summary = new Summary();
+		final Set<String> existing = listUsernames();
+		//usernames of the input so far, a second row with the same username is an error in the input
+		Set<String> seen = new HashSet<>();
+		final ExecutorService executor = BulkExecutors.newBulkExecutor(workers, queueCapacity);
+		try {
+			UserImportReader.Row row;
+			while ((row = reader.next()) != null) {
+				String username = row.get("username");
+				if (username != null && journal.isDone(username)) {
+					summary.skipped.incrementAndGet();
+					continue;
+				}
+				if (username != null && seen.contains(username.toLowerCase(Locale.ROOT))) {
+					//journaled without a username, the outcome of the first row of that username must stand
+					summary.invalid.incrementAndGet();
+					journal.record(row.getNumber(), null, ProvisioningJournal.Status.INVALID, "username " + username + " repeated in the input");
+					System.err.println("Row " + row.getNumber() + " is invalid: username " + username + " repeated in the input");
+					continue;
+				}
+				final AddUserRequestBody requestBody;
+				try {
+					requestBody = toRequestBody(row);
+					seen.add(username.toLowerCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					summary.invalid.incrementAndGet();
+					journal.record(row.getNumber(), username, ProvisioningJournal.Status.INVALID, e.getMessage());
+					System.err.println("Row " + row.getNumber() + " is invalid: " + e.getMessage());
+					continue;
+				}
+				if (existing.contains(username.toLowerCase(Locale.ROOT))) {
+					summary.existing.incrementAndGet();
+					journal.record(row.getNumber(), username, ProvisioningJournal.Status.EXIST, null);
+					continue;
+				}
+				executor.execute(newAddTask(row.getNumber(), requestBody, existing, journal, summary));
+			}
+		} finally {
+			BulkExecutors.awaitCompletion(executor);
+		}
+		return summary;
+	}
+
+	/**
+	 * Check a row locally and turn it into an addUser request
+	 *
+	 * @param row the row
+	 * @return the request
+	 * @throws IllegalArgumentException the row is not valid, the message tells why
+	 */
+	static AddUserRequestBody toRequestBody(UserImportReader.Row row) {
+		String username = row.get("username");
+		if (username == null || !USERNAME.matcher(username).matches()) {
+			throw new IllegalArgumentException("username is missing or holds spaces or slashes");
+		}
+		String email = row.get("email");
+		if (email == null || !EMAIL.matcher(email).matches()) {
+			throw new IllegalArgumentException("email is missing or not an address");
+		}
+		String password = row.get("password");
+		if (password == null || password.length() < MIN_PASSWORD_LENGTH) {
+			throw new IllegalArgumentException("password must have at least " + MIN_PASSWORD_LENGTH + " characters");
+		}
+		String homeResource = row.get("home_resource");
+		if (homeResource == null || !homeResource.startsWith("/")) {
+			throw new IllegalArgumentException("home_resource must be an absolute path");
+		}
+		AddUserRequestBody requestBody = new AddUserRequestBody();
+		requestBody.setUsername(username);
+		requestBody.setEmail(email);
+		requestBody.setPassword(password);
+		requestBody.setHomeResource(homeResource);
+		requestBody.setNickname(row.get("nickname"));
+		String role = row.get("role");
+		try {
+			requestBody.setRole(role != null
+				? AddUserRequestBody.RoleEnum.valueOf(role.toUpperCase(Locale.ROOT)) : AddUserRequestBody.RoleEnum.USER);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("role must be user or admin");
+		}
+		String timeZone = row.get("time_zone") != null ? row.get("time_zone") : DEFAULT_TIME_ZONE;
+		try {
+			ZoneId.of(timeZone);
+		} catch (DateTimeException e) {
+			throw new IllegalArgumentException("unknown time_zone " + timeZone);
+		}
+		requestBody.setTimeZone(timeZone);
+		String expiration = row.get("expiration");
+		if (expiration != null && Utils.toEpochMillis(expiration) == null) {
+			throw new IllegalArgumentException("expiration is not a date and time");
+		}
+		requestBody.setExpiration(expiration);
+		requestBody.setLocked(toBoolean(row, "locked", false));
+		requestBody.setWelcomeEmail(toBoolean(row, "welcome_email", false));
+		requestBody.setPermissions(toPermissions(row.get("permissions") != null ? row.get("permissions") : DEFAULT_PERMISSIONS));
+		return requestBody;
+	}
+
+	//build the task adding a single user
+	private Runnable newAddTask(final int number, final AddUserRequestBody requestBody, final Set<String> existing,
+		final ProvisioningJournal journal, final Summary summary) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				String username = requestBody.getUsername();
+				try {
+					try {
+						//adding a user is not idempotent, it is only retried when the server throttled the request
+						UserResponse result = RetryPolicy.forAccount(credential).execute("addUser", false, new RetryPolicy.ApiCall<UserResponse>() {
+							@Override
+							public UserResponse call() throws ApiException {
+								return usersApi.addUser(credential.getEvApiKey(), credential.getEvAccessToken(), requestBody);
+							}
+						});
+						if (result != null && result.getResponseStatus() == RESPONSE_CODE_201 && result.getData() != null) {
+							existing.add(username.toLowerCase(Locale.ROOT));
+							summary.created.incrementAndGet();
+							journal.record(number, username, ProvisioningJournal.Status.CREATED, "#" + result.getData().getId());
+							System.out.println("Created new user " + username + " as ID #" + result.getData().getId());
+						} else {
+							summary.failed.incrementAndGet();
+							journal.record(number, username, ProvisioningJournal.Status.FAILED,
+								"response status " + (result != null ? result.getResponseStatus() : null));
+						}
+					} catch (ApiException e) {
+						//the request may have reached the server before it failed, or the name was taken meanwhile
+						User found = findUser(username);
+						if (found != null) {
+							existing.add(username.toLowerCase(Locale.ROOT));
+							summary.existing.incrementAndGet();
+							journal.record(number, username, ProvisioningJournal.Status.EXIST, "#" + found.getId() + " found after an error");
+						} else {
+							summary.failed.incrementAndGet();
+							journal.record(number, username, ProvisioningJournal.Status.FAILED, e.getCode() + " " + e.getMessage());
+							// In order to capture the detailed error message from the ExaVault API, we are using a custom ErrorResponse class to parse the ApiException
+							System.err.println("Exception when calling UsersApi#addUser for " + username + " => \n" + Utils.customErrorResponse(e));
+						}
+					}
+				} catch (IOException e) {
+					System.err.println("Exception when writing the provisioning journal => \n" + Utils.customErrorResponse(e));
+				}
+			}
+		};
+	}
+
+	//the user with exactly this username, null if there is none or it cannot be told
+	private User findUser(final String username) {
+		try {
+			UserCollectionResponse response = RetryPolicy.forAccount(credential).execute("listUsers", true, new RetryPolicy.ApiCall<UserCollectionResponse>() {
+				@Override
+				public UserCollectionResponse call() throws ApiException {
+					return usersApi.listUsers(credential.getEvApiKey(), credential.getEvAccessToken(), username, null,
+						null, null, null, null, null, 0, null, null, null);
+				}
+			});
+			List<User> users = response.getData() != null ? response.getData() : Collections.<User>emptyList();
+			for (User user : users) {
+				if (user.getAttributes() != null && username.equalsIgnoreCase(user.getAttributes().getUsername())) {
+					return user;
+				}
+			}
+		} catch (ApiException e) {
+			System.err.println("Exception when calling UsersApi#listUsers for " + username + " => \n" + Utils.customErrorResponse(e));
+		}
+		return null;
+	}
+
+	//usernames of the account, lower case, shared with the workers which add to it
+	private Set<String> listUsernames() throws ApiException, IOException {
+		final Set<String> usernames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		new UserPageFetcher(apiClient, credential, null).fetchAll(new UserPageFetcher.PageHandler() {
+			@Override
+			public void onPage(List<User> users) {
+				for (User user : users) {
+					if (user.getAttributes() != null && user.getAttributes().getUsername() != null) {
+						usernames.add(user.getAttributes().getUsername().toLowerCase(Locale.ROOT));
+					}
+				}
+			}
+		});
+		return usernames;
+	}
+
+	private static Boolean toBoolean(UserImportReader.Row row, String name, boolean defaultValue) {
+		String value = row.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		switch (value.toLowerCase(Locale.ROOT)) {
+			case "true":
+			case "yes":
+			case "1":
+				return true;
+			case "false":
+			case "no":
+			case "0":
+				return false;
+			default:
+				throw new IllegalArgumentException(name + " must be true or false");
+		}
+	}
+
+	//permissions named in a comma separated list, the others are off
+	private static UsersPermissions toPermissions(String names) {
+		UsersPermissions permissions = new UsersPermissions()
+			.list(false).download(false).upload(false).modify(false).delete(false)
+			.changePassword(false).share(false).notification(false).viewFormData(false).deleteFormData(false);
+		for (String name : names.split("[,;]")) {
+			switch (name.trim().toLowerCase(Locale.ROOT)) {
+				case "list":
+					permissions.setList(true);
+					break;
+				case "download":
+					permissions.setDownload(true);
+					break;
+				case "upload":
+					permissions.setUpload(true);
+					break;
+				case "modify":
+					permissions.setModify(true);
+					break;
+				case "delete":
+					permissions.setDelete(true);
+					break;
+				case "change_password":
+					permissions.setChangePassword(true);
+					break;
+				case "share":
+					permissions.setShare(true);
+					break;
+				case "notification":
+					permissions.setNotification(true);
+					break;
+				case "view_form_data":
+					permissions.setViewFormData(true);
+					break;
+				case "delete_form_data":
+					permissions.setDeleteFormData(true);
+					break;
+				case "":
+					break;
+				default:
+					throw new IllegalArgumentException("unknown permission " + name.trim());
+			}
+		}
+		return permissions;
+	}
+}
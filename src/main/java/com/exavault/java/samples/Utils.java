@@ -3,12 +3,20 @@ package com.exavault.java.samples;
 import com.exavault.client.ApiException;
 import com.exavault.client.api.ResourcesApi;
 import com.exavault.client.model.ResourceResponse;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.format.DateTimeFormatter;
+import org.threeten.bp.format.DateTimeParseException;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Random;
 
 /**
@@ -20,16 +28,32 @@ public final class Utils {
 	private static final Random random = new Random();
 	//we generate a random folder name with every run of this program
 	public static final String BASE_PATH = "/Quick" + "_" + Math.abs(random.nextInt());
+	//form of the timestamps of the activity logs
+	private static final DateTimeFormatter SPACE_SEPARATED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
 	/***
 	 * Get all the files from the local folder
 	 * @return file list
+	 * @deprecated only lists the top level of the folder and builds the whole array up front,
+	 * use a {@link LocalTreeWalker} over {@link #getLocalFolder()} instead
 	 */
+	@Deprecated
 	public static File[] getAllLocalFiles() {
+		File folder = getLocalFolder();
+		if (folder != null) {
+			return folder.listFiles();
+		}
+		return null;
+	}
+
+	/***
+	 * Get the local folder whose files will be uploaded
+	 * @return the folder, or null if it is not on the classpath
+	 */
+	public static File getLocalFolder() {
 		URL url = UploadFiles.class.getClassLoader().getResource(LOCAL_FOLDER);
 		if (url != null) {
-			String path = url.getPath();
-			return new File(path).listFiles();
+			return new File(url.getPath());
 		}
 		return null;
 	}
@@ -46,15 +70,55 @@ public final class Utils {
 	public static ResourceResponse uploadFile(
 			ResourcesApi resourcesApi, Credential credential, File file) throws ApiException {
 		//Destination path for the file being uploaded, including the file name.
-		String path = BASE_PATH + "/" + file.getName();
-		//File size, in bits, of the file being uploaded.
-		int fileSize = (int) file.length();
+		return uploadFile(resourcesApi, credential, file, BASE_PATH + "/" + file.getName());
+	}
+
+	/**
+	 * Uploads a given file to the given destination
+	 *
+	 * @param resourcesApi Resource API to be usd
+	 * @param credential   Credentials
+	 * @param file         file to be uploaded
+	 * @param path         destination path for the file being uploaded, including the file name
+	 * @return response back from resource API
+	 * @throws ApiException request could not be completed normally
+	 */
+	public static ResourceResponse uploadFile(
+			ResourcesApi resourcesApi, Credential credential, File file, String path) throws ApiException {
+		return uploadFile(resourcesApi, credential, file, path, false);
+	}
+
+	/**
+	 * Uploads a given file to the given destination
+	 *
+	 * @param resourcesApi   Resource API to be usd
+	 * @param credential     Credentials
+	 * @param file           file to be uploaded
+	 * @param path           destination path for the file being uploaded, including the file name
+	 * @param allowOverwrite True if a file with the same name is found in the designated path, should be overwritten.
+	 *                       False if different file names should be generated.
+	 * @return response back from resource API
+	 * @throws ApiException request could not be completed normally
+	 */
+	public static ResourceResponse uploadFile(final ResourcesApi resourcesApi, final Credential credential, final File file,
+			final String path, final boolean allowOverwrite) throws ApiException {
+		//File size, in bytes, of the file being uploaded. Kept as a long, files above 2 GB are common.
+		final long fileSize = file.length();
+		if (fileSize > ChunkedUpload.MAX_RANGE_SIZE) {
+			/*
+			 * A single request cannot carry more than MAX_RANGE_SIZE bytes,
+			 * so larger files are split explicitly and sent range by range
+			 */
+			try {
+				return new ChunkedUpload(resourcesApi.getApiClient(), credential).upload(file, path, allowOverwrite);
+			} catch (IOException e) {
+				throw new ApiException(e);
+			}
+		}
 		//Allows a file upload to resume at a certain number of bytes.
 		final int offsetBytes = 0;
 		//True if upload resume is supported, false if it isn't.
 		final boolean resume = false;
-		//True if a file with the same name is found in the designated path, should be overwritten. False if different file names should be generated.
-		final boolean allowOverwrite = false;
 
 		/*
 		 * The uploadFile method of the ResourcesApi class will let us upload a file to our account
@@ -63,8 +127,14 @@ public final class Utils {
 		 * for the details of this method
 		 */
 
-		return resourcesApi.uploadFile(credential.getEvApiKey(), credential.getEvAccessToken(),
-				path, fileSize, file, offsetBytes, resume, allowOverwrite);
+		//without overwrite, a repeated upload whose first attempt went through would create a renamed copy
+		return RetryPolicy.forAccount(credential).execute("uploadFile", allowOverwrite, new RetryPolicy.ApiCall<ResourceResponse>() {
+			@Override
+			public ResourceResponse call() throws ApiException {
+				return resourcesApi.uploadFile(credential.getEvApiKey(), credential.getEvAccessToken(),
+						path, (int) fileSize, file, offsetBytes, resume, allowOverwrite);
+			}
+		});
 	}
 
 	// Utility method to extract error details from an ApiException object
@@ -95,6 +165,51 @@ public final class Utils {
 		}
 	}
 
+	/**
+	 * Epoch milliseconds of a timestamp value
+	 *
+	 * @param value an OffsetDateTime, or a text in ISO 8601 or "yyyy-MM-dd HH:mm:ss" form, taken as UTC without an offset
+	 * @return the epoch milliseconds, or null if the value is null or cannot be parsed
+	 */
+	public static Long toEpochMillis(Object value) {
+		if (value instanceof OffsetDateTime) {
+			return ((OffsetDateTime) value).toInstant().toEpochMilli();
+		}
+		if (value == null) {
+			return null;
+		}
+		String text = value.toString().trim();
+		try {
+			return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+		} catch (DateTimeParseException ignored) {
+			//no offset, try the local forms
+		}
+		try {
+			return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException ignored) {
+			//not ISO 8601, try the space separated form
+		}
+		try {
+			return LocalDateTime.parse(text, SPACE_SEPARATED).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	//utility method to turn a value into a short, file name safe key
+	static String sha1Hex(String value) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : hash) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
 	//utility method to convert error stack trace to string
 	public static String customErrorResponse(IOException e) {
 		StringWriter sw = new StringWriter();
@@ -0,0 +1,199 @@
+package com.exavault.java.samples;
+
+import com.exavault.client.model.WebhooksActivityEntry;
+import com.exavault.client.model.WebhooksActivityEntryAttributes;
+import org.threeten.bp.Instant;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery health of webhook endpoints, built from webhook log entries one at a time.
+ * <p>
+ * The webhook log records, per delivery attempt, the HTTP status the endpoint answered with, the attempt number and
+ * the size of the response, but not how long the endpoint took. A slow consumer shows up as timed out or failed
+ * attempts followed by retries, so per endpoint this keeps {@link LogHistogram}s of the attempt numbers and the
+ * response sizes, and the deliveries, failures and retries of each time window. A window where too many deliveries
+ * failed, or where retries pile up (a retry storm), raises an alert once.
+ * <p>
+ * Only the most recent windows are kept per endpoint, so memory stays bounded when following the log for days.
+ */
+public class WebhookHealth {
+	//default width of a window
+	public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	//default number of windows kept per endpoint, a day of five minute windows
+	public static final int DEFAULT_MAX_WINDOWS = 288;
+	//default share of failed deliveries in a window which raises an alert
+	public static final double DEFAULT_FAILURE_RATE = 0.5;
+	//default number of deliveries a window needs before its failure rate is judged
+	public static final int DEFAULT_MIN_DELIVERIES = 10;
+	//default number of retries in a window which is a retry storm, when they are also half of the deliveries
+	public static final int DEFAULT_STORM_RETRIES = 20;
+	private static final String UNKNOWN_ENDPOINT = "(unknown)";
+	private static final long HIGHEST_ATTEMPT = 1000;
+	private static final long HIGHEST_RESPONSE_SIZE = Integer.MAX_VALUE;
+	private static final int SIGNIFICANT_DIGITS = 2;
+	//positions of the counts of a window
+	private static final int DELIVERIES = 0;
+	private static final int FAILURES = 1;
+	private static final int RETRIES = 2;
+	private final long windowMillis;
+	private final int maxWindows;
+	private final double failureRate;
+	private final int minDeliveries;
+	private final int stormRetries;
+	private final Map<String, Endpoint> endpoints = new TreeMap<>();
+
+	public WebhookHealth() {
+		this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_WINDOWS, DEFAULT_FAILURE_RATE, DEFAULT_MIN_DELIVERIES, DEFAULT_STORM_RETRIES);
+	}
+
+	/**
+	 * @param windowMillis  width of a window
+	 * @param maxWindows    number of windows kept per endpoint
+	 * @param failureRate   share of failed deliveries in a window which raises an alert
+	 * @param minDeliveries number of deliveries a window needs before its failure rate is judged
+	 * @param stormRetries  number of retries in a window which is a retry storm
+	 */
+	public WebhookHealth(long windowMillis, int maxWindows, double failureRate, int minDeliveries, int stormRetries) {
+		if (windowMillis < 1 || maxWindows < 1) {
+			throw new IllegalArgumentException("windowMillis and maxWindows must be positive");
+		}
+		this.windowMillis = windowMillis;
+		this.maxWindows = maxWindows;
+		this.failureRate = failureRate;
+		this.minDeliveries = minDeliveries;
+		this.stormRetries = stormRetries;
+	}
+
+	/**
+	 * Add one delivery attempt to the statistics of its endpoint
+	 *
+	 * @param entry the webhook log entry
+	 */
+	public void accept(WebhooksActivityEntry entry) {
+		WebhooksActivityEntryAttributes attributes = entry.getAttributes();
+		if (attributes == null) {
+			return;
+		}
+		String url = attributes.getEndpointUrl() != null ? attributes.getEndpointUrl() : UNKNOWN_ENDPOINT;
+		Endpoint endpoint = endpoints.get(url);
+		if (endpoint == null) {
+			endpoint = new Endpoint();
+			endpoints.put(url, endpoint);
+		}
+		boolean failed = isFailure(attributes.getStatus());
+		int attempt = attributes.getAttempt() != null ? Math.max(attributes.getAttempt(), 1) : 1;
+		endpoint.deliveries++;
+		if (failed) {
+			endpoint.failures++;
+		}
+		if (attempt > 1) {
+			endpoint.retries++;
+		}
+		endpoint.attempts.record(attempt);
+		if (attributes.getResponseSize() != null && attributes.getResponseSize() >= 0) {
+			endpoint.responseSizes.record(attributes.getResponseSize());
+		}
+		Long millis = Utils.toEpochMillis(attributes.getCreated());
+		if (millis != null) {
+			long start = millis - ((millis % windowMillis) + windowMillis) % windowMillis;
+			long[] window = endpoint.windows.get(start);
+			if (window == null) {
+				if (endpoint.windows.size() == maxWindows && start < endpoint.windows.firstKey()) {
+					//older than every window kept
+					return;
+				}
+				window = new long[3];
+				endpoint.windows.put(start, window);
+				if (endpoint.windows.size() > maxWindows) {
+					endpoint.alerted.remove(endpoint.windows.pollFirstEntry().getKey());
+				}
+			}
+			window[DELIVERIES]++;
+			window[FAILURES] += failed ? 1 : 0;
+			window[RETRIES] += attempt > 1 ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Alerts for the windows which crossed a threshold since the previous call, each window is reported once
+	 *
+	 * @return the alerts, one line each
+	 */
+	public List<String> newAlerts() {
+		List<String> alerts = new ArrayList<>();
+		for (Map.Entry<String, Endpoint> e : endpoints.entrySet()) {
+			Endpoint endpoint = e.getValue();
+			for (Map.Entry<Long, long[]> w : endpoint.windows.entrySet()) {
+				long[] window = w.getValue();
+				boolean failing = window[DELIVERIES] >= minDeliveries && window[FAILURES] >= failureRate * window[DELIVERIES];
+				boolean storm = window[RETRIES] >= stormRetries && window[RETRIES] * 2 >= window[DELIVERIES];
+				if ((failing || storm) && endpoint.alerted.add(w.getKey())) {
+					alerts.add(String.format("%s %s: %d of %d deliveries failed, %d retries%s",
+						toTime(w.getKey()), e.getKey(), window[FAILURES], window[DELIVERIES], window[RETRIES],
+						storm ? " (retry storm)" : ""));
+				}
+			}
+		}
+		return alerts;
+	}
+
+	/**
+	 * Print the deliveries, failures and attempt and response size percentiles of every endpoint
+	 */
+	public void print() {
+		System.out.println(endpoints.size() + " webhook endpoints: ");
+		for (Map.Entry<String, Endpoint> e : endpoints.entrySet()) {
+			Endpoint endpoint = e.getValue();
+			System.out.println();
+			System.out.println(e.getKey());
+			System.out.printf("  %d deliveries, %d failed (%.1f%%), %d retries%n", endpoint.deliveries, endpoint.failures,
+				endpoint.deliveries > 0 ? 100.0 * endpoint.failures / endpoint.deliveries : 0, endpoint.retries);
+			printPercentiles("attempt", endpoint.attempts);
+			printPercentiles("response bytes", endpoint.responseSizes);
+			Map.Entry<Long, long[]> worst = null;
+			for (Map.Entry<Long, long[]> w : endpoint.windows.entrySet()) {
+				if (worst == null || w.getValue()[FAILURES] > worst.getValue()[FAILURES]) {
+					worst = w;
+				}
+			}
+			if (worst != null && worst.getValue()[FAILURES] > 0) {
+				System.out.printf("  worst window %s: %d of %d failed%n", toTime(worst.getKey()),
+					worst.getValue()[FAILURES], worst.getValue()[DELIVERIES]);
+			}
+		}
+	}
+
+	//anything but a 2xx answer, including no answer at all, is a failed delivery
+	private static boolean isFailure(Integer status) {
+		return status == null || status < 200 || status > 299;
+	}
+
+	private static void printPercentiles(String name, LogHistogram histogram) {
+		System.out.printf("  %-15s p50 %-8d p90 %-8d p99 %-8d max %d%n", name, histogram.getValueAtPercentile(50),
+			histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99), histogram.getMax());
+	}
+
+	private static OffsetDateTime toTime(long millis) {
+		return OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+	}
+
+	//statistics of one endpoint, windows hold deliveries, failures and retries by window start
+	private static class Endpoint {
+		private final LogHistogram attempts = new LogHistogram(HIGHEST_ATTEMPT, SIGNIFICANT_DIGITS);
+		private final LogHistogram responseSizes = new LogHistogram(HIGHEST_RESPONSE_SIZE, SIGNIFICANT_DIGITS);
+		private final TreeMap<Long, long[]> windows = new TreeMap<>();
+		private final Set<Long> alerted = new HashSet<>();
+		private long deliveries;
+		private long failures;
+		private long retries;
+	}
+}